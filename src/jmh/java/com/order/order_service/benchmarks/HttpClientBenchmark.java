@@ -0,0 +1,83 @@
+package com.order.order_service.benchmarks;
+
+import com.order.order_service.config.RestTemplateConfig;
+import com.order.order_service.dtos.ProductRecord;
+import com.sun.net.httpserver.HttpServer;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-call latency of the product-details GET against a local stub server, comparing the previous
+ * SimpleClientHttpRequestFactory with the pooled keep-alive client from RestTemplateConfig.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(16)
+@State(Scope.Benchmark)
+public class HttpClientBenchmark {
+
+    private static final byte[] PRODUCT_JSON =
+            "{\"id\":1,\"name\":\"Product 1\",\"description\":\"Stub product\",\"price\":10.0,\"quantity\":100}"
+                    .getBytes(StandardCharsets.UTF_8);
+
+    private HttpServer stubServer;
+    private ExecutorService stubExecutor;
+    private String productUrl;
+
+    private RestTemplate simpleRestTemplate;
+    private RestTemplate pooledRestTemplate;
+    private HttpComponentsClientHttpRequestFactory pooledRequestFactory;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        // Without TCP_NODELAY the stub's separate header/body writes hit the Nagle/delayed-ACK stall (~40 ms)
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        stubExecutor = Executors.newFixedThreadPool(32);
+        stubServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+        stubServer.createContext("/public/", exchange -> {
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, PRODUCT_JSON.length);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(PRODUCT_JSON);
+            }
+        });
+        stubServer.setExecutor(stubExecutor);
+        stubServer.start();
+
+        productUrl = "http://127.0.0.1:" + stubServer.getAddress().getPort() + "/public/1";
+
+        simpleRestTemplate = new RestTemplate(RestTemplateConfig.simpleRequestFactory(2000, 2000));
+        pooledRequestFactory = RestTemplateConfig.pooledRequestFactory(
+                RestTemplateConfig.connectionManager(200, 100, 2000, 2000, 300000), 2000, 1000, 30000);
+        pooledRestTemplate = new RestTemplate(pooledRequestFactory);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        pooledRequestFactory.destroy();
+        stubServer.stop(0);
+        stubExecutor.shutdownNow();
+    }
+
+    @Benchmark
+    public ProductRecord simpleClient() {
+        return simpleRestTemplate.getForObject(productUrl, ProductRecord.class);
+    }
+
+    @Benchmark
+    public ProductRecord pooledClient() {
+        return pooledRestTemplate.getForObject(productUrl, ProductRecord.class);
+    }
+}
@@ -0,0 +1,70 @@
+package com.order.order_service.benchmarks;
+
+import com.order.order_service.repositories.OrderItemRepository;
+import com.order.order_service.repositories.OrderRepository;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Repository stand-ins for the benchmarks. Entities only get an id assigned on save and are not retained,
+ * so the heap stays flat across iterations and the gc profiler measures the service path itself.
+ */
+final class InMemoryRepositories {
+
+    private InMemoryRepositories() {}
+
+    static OrderRepository orderRepository() {
+        return create(OrderRepository.class);
+    }
+
+    static OrderItemRepository orderItemRepository() {
+        return create(OrderItemRepository.class);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <R> R create(Class<R> repositoryType) {
+        AtomicLong sequence = new AtomicLong();
+
+        return (R) Proxy.newProxyInstance(repositoryType.getClassLoader(), new Class<?>[]{repositoryType}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "save":
+                    assignId(args[0], sequence);
+                    return args[0];
+                case "saveAll":
+                    List<Object> saved = new ArrayList<>();
+                    for (Object entity : (Iterable<?>) args[0]) {
+                        assignId(entity, sequence);
+                        saved.add(entity);
+                    }
+                    return saved;
+                case "findById":
+                    return Optional.empty();
+                case "existsById":
+                    return false;
+                case "deleteById":
+                case "delete":
+                case "deleteAllInBatch":
+                    return null;
+                case "toString":
+                    return repositoryType.getSimpleName() + " stand-in";
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                default:
+                    throw new UnsupportedOperationException(method.getName() + " is not supported by the benchmark stand-in");
+            }
+        });
+    }
+
+    private static void assignId(Object entity, AtomicLong sequence) {
+        if (ReflectionTestUtils.getField(entity, "id") == null) {
+            ReflectionTestUtils.setField(entity, "id", sequence.incrementAndGet());
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.order.order_service.benchmarks;
+
+import com.order.order_service.dtos.*;
+import com.order.order_service.enums.OrderStatusEnum;
+import com.order.order_service.exceptions.OrderException;
+import com.order.order_service.models.OrderEntity;
+import com.order.order_service.models.OrderItem;
+import com.order.order_service.services.OrderSagaService;
+import com.order.order_service.services.OutboxMessageService;
+import com.order.order_service.services.UserClientService;
+import com.order.order_service.services.implementations.OrderServiceImplementation;
+import com.order.order_service.stubs.EmptyStockSnapshotService;
+import com.order.order_service.stubs.PassingProductIdFilterService;
+import com.order.order_service.stubs.StubProductClientService;
+import com.order.order_service.utils.ReservationResults;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Order-creation hot path ({@code POST api/orders/user}) against in-process stand-ins for the
+ * repositories, product-service and user-service. Runs offline.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OrderCreationBenchmark {
+
+    private static final String EMAIL = "benchmark@order.com";
+    private static final Long USER_ID = 1L;
+
+    @Param({"1", "10", "100", "500"})
+    private int itemCount;
+
+    private OrderServiceImplementation orderService;
+    private NewOrderRecord newOrder;
+    private ReservationResults reservations;
+    private OrderEntity pendingOrder;
+    private OrderEntity completedOrder;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        StubProductClientService productClientService = new StubProductClientService(Integer.MAX_VALUE);
+
+        orderService = new OrderServiceImplementation();
+        ReflectionTestUtils.setField(orderService, "orderRepository", InMemoryRepositories.orderRepository());
+        ReflectionTestUtils.setField(orderService, "orderItemRepository", InMemoryRepositories.orderItemRepository());
+        ReflectionTestUtils.setField(orderService, "productClientService", productClientService);
+        ReflectionTestUtils.setField(orderService, "outboxMessageService", (OutboxMessageService) (event, eventType, exchange, routingKey) -> {});
+        ReflectionTestUtils.setField(orderService, "userClientService", (UserClientService) email -> USER_ID);
+        ReflectionTestUtils.setField(orderService, "orderSagaService", new ConfirmingOrderSagaService());
+        ReflectionTestUtils.setField(orderService, "productIdFilterService", new PassingProductIdFilterService());
+        ReflectionTestUtils.setField(orderService, "stockSnapshotService", new EmptyStockSnapshotService());
+        ReflectionTestUtils.setField(orderService, "transactionTemplate", new TransactionTemplate(new NoOpTransactionManager()));
+
+        List<ProductQuantityRecord> wantedProducts = new ArrayList<>(itemCount);
+        for (long productId = 1; productId <= itemCount; productId++) {
+            wantedProducts.add(new ProductQuantityRecord(productId, 1));
+        }
+        newOrder = new NewOrderRecord(wantedProducts);
+        reservations = productClientService.reserveProducts(1L, wantedProducts);
+
+        pendingOrder = new OrderEntity(null, 1L, OrderStatusEnum.PENDING);
+        ReflectionTestUtils.setField(pendingOrder, "id", 1L);
+        for (ProductQuantityRecord wantedProduct : wantedProducts) {
+            pendingOrder.addOrderItemList(new OrderItem(wantedProduct.id(), wantedProduct.quantity(), pendingOrder));
+        }
+
+        completedOrder = new OrderEntity(null, 1L, OrderStatusEnum.COMPLETED);
+        ReflectionTestUtils.setField(completedOrder, "id", 1L);
+        for (ProductQuantityRecord wantedProduct : wantedProducts) {
+            OrderItem orderItem = new OrderItem(wantedProduct.id(), wantedProduct.quantity(), completedOrder);
+            ReflectionTestUtils.setField(orderItem, "id", wantedProduct.id());
+            completedOrder.addOrderItem(orderItem);
+        }
+    }
+
+    @Benchmark
+    public OrderCreatedRecord createOrder() throws OrderException {
+        return orderService.createOrder(USER_ID, EMAIL, newOrder).getBody();
+    }
+
+    @Benchmark
+    public OrderItemListWrapper setOrderItemList() {
+        return orderService.setOrderItemList(reservations, newOrder.recordList(), pendingOrder);
+    }
+
+    @Benchmark
+    public OrderDTO orderDtoConstruction() {
+        return new OrderDTO(completedOrder);
+    }
+
+    private static final class ConfirmingOrderSagaService implements OrderSagaService {
+        @Override
+        public boolean confirmOrder(Long orderId) {
+            return true;
+        }
+
+        @Override
+        public void compensateOrder(Long orderId) {}
+
+        @Override
+        public void processPendingSagas() {}
+    }
+
+    private static final class NoOpTransactionManager implements PlatformTransactionManager {
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {}
+
+        @Override
+        public void rollback(TransactionStatus status) {}
+    }
+}
@@ -0,0 +1,123 @@
+package com.order.order_service.benchmarks;
+
+import com.order.order_service.enums.OrderStatusEnum;
+import com.order.order_service.models.OrderEntity;
+import com.order.order_service.models.OrderItem;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.h2.jdbcx.JdbcDataSource;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.LoggerFactory;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Persists one order with its lines per invocation against in-memory H2, with the application's entity mappings
+ * and naming strategies, comparing hibernate.jdbc.batch_size 1 and 50. In-memory H2 has no network, so
+ * {@code roundTripMicros} adds a fixed delay to every statement execution (a batch counts as one) to stand in for
+ * the round trip to a real database.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OrderInsertBenchmark {
+
+    @Param({"500"})
+    private int lineCount;
+
+    @Param({"1", "50"})
+    private int batchSize;
+
+    @Param({"0", "200"})
+    private long roundTripMicros;
+
+    private LocalContainerEntityManagerFactoryBean factoryBean;
+    private EntityManagerFactory entityManagerFactory;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // Without a logback config the root logger is at DEBUG, and Hibernate's per-statement logging would dominate
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME))
+                .setLevel(ch.qos.logback.classic.Level.WARN);
+
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:insert-benchmark;DB_CLOSE_DELAY=-1");
+
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("hibernate.hbm2ddl.auto", "create-drop");
+        properties.put("hibernate.physical_naming_strategy", "org.hibernate.boot.model.naming.CamelCaseToUnderscoresNamingStrategy");
+        properties.put("hibernate.implicit_naming_strategy", "org.springframework.boot.orm.jpa.hibernate.SpringImplicitNamingStrategy");
+        properties.put("hibernate.jdbc.batch_size", batchSize);
+        properties.put("hibernate.order_inserts", true);
+        properties.put("hibernate.order_updates", true);
+
+        factoryBean = new LocalContainerEntityManagerFactoryBean();
+        factoryBean.setDataSource(withRoundTrip(dataSource, TimeUnit.MICROSECONDS.toNanos(roundTripMicros)));
+        factoryBean.setPackagesToScan("com.order.order_service.models");
+        factoryBean.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        factoryBean.setJpaPropertyMap(properties);
+        factoryBean.afterPropertiesSet();
+        entityManagerFactory = factoryBean.getObject();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        factoryBean.destroy();
+    }
+
+    @Benchmark
+    public Long insertOrder() {
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            entityManager.getTransaction().begin();
+            OrderEntity order = new OrderEntity(null, 1L, OrderStatusEnum.PENDING);
+            for (long productId = 1; productId <= lineCount; productId++) {
+                order.addOrderItem(new OrderItem(productId, 1, order));
+            }
+            entityManager.persist(order);
+            entityManager.getTransaction().commit();
+            return order.getId();
+        } finally {
+            entityManager.close();
+        }
+    }
+
+    private static DataSource withRoundTrip(DataSource dataSource, long roundTripNanos) {
+        return proxy(DataSource.class, dataSource, roundTripNanos);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, T target, long roundTripNanos) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (instance, method, args) -> {
+            if (method.getName().startsWith("execute") && roundTripNanos > 0) {
+                LockSupport.parkNanos(roundTripNanos);
+            }
+            Object result;
+            try {
+                result = method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            if (result instanceof Connection connection) {
+                return proxy(Connection.class, connection, roundTripNanos);
+            }
+            if (result instanceof PreparedStatement statement) {
+                return proxy(PreparedStatement.class, statement, roundTripNanos);
+            }
+            return result;
+        });
+    }
+}
@@ -0,0 +1,93 @@
+package com.order.order_service.benchmarks;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.order.order_service.dtos.ProductQuantityRecord;
+import com.order.order_service.enums.ReservationStatusEnum;
+import com.order.order_service.utils.ReservationResults;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding a product-service reservation response and matching an order's lines against it, as setOrderItemList
+ * does: the previous list of result records collected into a HashMap<Long, record>, against ReservationResults
+ * filled by its streaming deserializer. Every third product is missing and every fifth has too little stock.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReservationMatchingBenchmark {
+
+    private static final TypeReference<List<BoxedReservation>> BOXED_TYPE = new TypeReference<>() {};
+
+    @Param({"10", "100", "500"})
+    private int lineCount;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private byte[] response;
+    private List<ProductQuantityRecord> wantedProducts;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        wantedProducts = new ArrayList<>(lineCount);
+        StringBuilder json = new StringBuilder("[");
+
+        for (long productId = 1; productId <= lineCount; productId++) {
+            long id = 100_000 + productId;
+            wantedProducts.add(new ProductQuantityRecord(id, 2));
+
+            ReservationStatusEnum status = productId % 3 == 0 ? ReservationStatusEnum.NOT_FOUND
+                    : productId % 5 == 0 ? ReservationStatusEnum.NO_STOCK
+                    : ReservationStatusEnum.RESERVED;
+            if (json.length() > 1) {
+                json.append(',');
+            }
+            json.append("{\"id\":").append(id).append(",\"quantity\":2,\"status\":\"").append(status).append("\"}");
+        }
+        response = json.append(']').toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public int boxedRecords() throws IOException {
+        Map<Long, BoxedReservation> reservations = new HashMap<>();
+        for (BoxedReservation reservation : objectMapper.readValue(response, BOXED_TYPE)) {
+            reservations.put(reservation.id(), reservation);
+        }
+
+        int reserved = 0;
+        for (ProductQuantityRecord wantedProduct : wantedProducts) {
+            BoxedReservation reservation = reservations.get(wantedProduct.id());
+            if (reservation != null && reservation.status() == ReservationStatusEnum.RESERVED) {
+                reserved++;
+            }
+        }
+        return reserved;
+    }
+
+    @Benchmark
+    public int reservationResults() throws IOException {
+        ReservationResults reservations = objectMapper.readValue(response, ReservationResults.class);
+
+        int reserved = 0;
+        for (ProductQuantityRecord wantedProduct : wantedProducts) {
+            if (reservations.isReserved(wantedProduct.id())) {
+                reserved++;
+            }
+        }
+        return reserved;
+    }
+
+    // The per-product record the client used to decode the response into
+    public record BoxedReservation(Long id, Integer quantity, ReservationStatusEnum status) {
+    }
+}
@@ -0,0 +1,117 @@
+package com.order.order_service.benchmarks;
+
+import com.order.order_service.config.RestTemplateConfig;
+import com.sun.net.httpserver.HttpServer;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to serve a burst of concurrent requests whose handling is a blocking call to a slow product-service stub.
+ * "platform" models Tomcat's default 200 worker threads, "virtual" the virtual-threads profile (one virtual thread
+ * per request). The virtual mode needs a Java 21 JVM:
+ * mvn -Pbenchmark,java21 test-compile exec:exec -Djmh.args="VirtualThreadCapacity"
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class VirtualThreadCapacityBenchmark {
+
+    private static final int TOMCAT_MAX_THREADS = 200;
+    private static final byte[] RESPONSE = "{}".getBytes(StandardCharsets.UTF_8);
+
+    @Param({"platform", "virtual"})
+    private String mode;
+
+    @Param({"1000"})
+    private int concurrentRequests;
+
+    @Param({"100"})
+    private long stubLatencyMs;
+
+    private HttpServer stubServer;
+    private ExecutorService stubExecutor;
+    private String productUrl;
+
+    private HttpComponentsClientHttpRequestFactory requestFactory;
+    private RestTemplate restTemplate;
+    private AsyncTaskExecutor requestExecutor;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        if ("virtual".equals(mode) && Runtime.version().feature() < 21) {
+            throw new IllegalStateException("Virtual threads need Java 21, run with -Pbenchmark,java21 on a JDK 21");
+        }
+
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        stubExecutor = Executors.newCachedThreadPool();
+        stubServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), concurrentRequests);
+        stubServer.createContext("/public/", exchange -> {
+            try {
+                Thread.sleep(stubLatencyMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, RESPONSE.length);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(RESPONSE);
+            }
+        });
+        stubServer.setExecutor(stubExecutor);
+        stubServer.start();
+
+        productUrl = "http://127.0.0.1:" + stubServer.getAddress().getPort() + "/public/1";
+
+        // Size the pool so that the outbound connections are not the bottleneck being measured
+        requestFactory = RestTemplateConfig.pooledRequestFactory(
+                RestTemplateConfig.connectionManager(concurrentRequests, concurrentRequests, 2000, 10000, 300000),
+                10000, 10000, 30000);
+        restTemplate = new RestTemplate(requestFactory);
+
+        if ("virtual".equals(mode)) {
+            requestExecutor = new VirtualThreadTaskExecutor("request-");
+        } else {
+            ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+            executor.setCorePoolSize(TOMCAT_MAX_THREADS);
+            executor.setMaxPoolSize(TOMCAT_MAX_THREADS);
+            executor.setThreadNamePrefix("request-");
+            executor.initialize();
+            requestExecutor = executor;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        if (requestExecutor instanceof ThreadPoolTaskExecutor executor) {
+            executor.shutdown();
+        }
+        requestFactory.destroy();
+        stubServer.stop(0);
+        stubExecutor.shutdownNow();
+    }
+
+    @Benchmark
+    public void burst() {
+        CompletableFuture<?>[] requests = new CompletableFuture<?>[concurrentRequests];
+        for (int i = 0; i < concurrentRequests; i++) {
+            requests[i] = CompletableFuture.runAsync(() -> restTemplate.getForObject(productUrl, String.class), requestExecutor);
+        }
+        CompletableFuture.allOf(requests).join();
+    }
+}
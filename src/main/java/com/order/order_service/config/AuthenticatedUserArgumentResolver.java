@@ -0,0 +1,42 @@
+package com.order.order_service.config;
+
+import com.order.order_service.dtos.AuthenticatedUserRecord;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+
+/**
+ * Verifies the bearer token once per request and hands the resulting principal to controller methods.
+ */
+@Component
+public class AuthenticatedUserArgumentResolver implements HandlerMethodArgumentResolver {
+
+    private static final String AUTHENTICATED_USER_ATTRIBUTE = AuthenticatedUserRecord.class.getName();
+
+    @Autowired
+    private JwtUtils jwtUtils;
+
+    @Override
+    public boolean supportsParameter(MethodParameter parameter) {
+        return AuthenticatedUserRecord.class.equals(parameter.getParameterType());
+    }
+
+    @Override
+    public Object resolveArgument(MethodParameter parameter, ModelAndViewContainer mavContainer,
+                                  NativeWebRequest webRequest, WebDataBinderFactory binderFactory) {
+        Object user = webRequest.getAttribute(AUTHENTICATED_USER_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+
+        if (user == null) {
+            user = jwtUtils.authenticate(webRequest.getHeader(HttpHeaders.AUTHORIZATION));
+            webRequest.setAttribute(AUTHENTICATED_USER_ATTRIBUTE, user, RequestAttributes.SCOPE_REQUEST);
+        }
+
+        return user;
+    }
+}
@@ -0,0 +1,51 @@
+package com.order.order_service.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+public class ExecutorConfig {
+
+    @Bean
+    public ThreadPoolTaskExecutor productDetailsExecutor(@Value("${product.details.max-concurrency:16}") int maxConcurrency,
+                                                         @Value("${product.details.queue-capacity:1000}") int queueCapacity,
+                                                         Environment environment) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(maxConcurrency);
+        executor.setMaxPoolSize(maxConcurrency);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setAllowCoreThreadTimeOut(true);
+        executor.setThreadNamePrefix("product-details-");
+        // The pool still caps fan-out towards product-service; only the worker threads become virtual
+        if (Threading.VIRTUAL.isActive(environment)) {
+            executor.setThreadFactory(new VirtualThreadTaskExecutor("product-details-").getVirtualThreadFactory());
+        }
+        return executor;
+    }
+
+    /**
+     * Runs the NDJSON order streams. Streams only hold a connection while they read a chunk, but each one keeps a
+     * thread for its whole duration, so the pool size caps how many can run at once. WebConfig registers it as the
+     * executor for all MVC async work.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor orderStreamExecutor(@Value("${order.stream.max-concurrency:4}") int maxConcurrency,
+                                                      @Value("${order.stream.queue-capacity:16}") int queueCapacity,
+                                                      Environment environment) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(maxConcurrency);
+        executor.setMaxPoolSize(maxConcurrency);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setAllowCoreThreadTimeOut(true);
+        executor.setThreadNamePrefix("order-stream-");
+        if (Threading.VIRTUAL.isActive(environment)) {
+            executor.setThreadFactory(new VirtualThreadTaskExecutor("order-stream-").getVirtualThreadFactory());
+        }
+        return executor;
+    }
+}
@@ -1,6 +1,11 @@
 package com.order.order_service.config;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.order.order_service.dtos.AuthenticatedUserRecord;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
@@ -8,42 +13,89 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
+import java.util.concurrent.TimeUnit;
 
 @Component
 public class JwtUtils {
 
     private final SecretKey secretKey;
+    private final JwtParser jwtParser;
+    private final Cache<String, VerifiedToken> verifiedTokens;
 
     @Value("${jwt.expiration}")
     private long expiration;
 
-    public JwtUtils(@Value("${jwt.secret}") String secret) {
+    public JwtUtils(@Value("${jwt.secret}") String secret,
+                    @Value("${jwt.cache.max-size:10000}") long cacheMaxSize,
+                    @Value("${jwt.cache.max-ttl-ms:300000}") long cacheMaxTtlMs) {
         this.secretKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(secret));
+        this.jwtParser = Jwts.parser()
+                .verifyWith(secretKey)
+                .build();
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfter(new VerifiedTokenExpiry(TimeUnit.MILLISECONDS.toNanos(cacheMaxTtlMs)))
+                .build();
     }
 
     public String extractUsername(String token) {
-        return parseClaims(token).getSubject();
+        return verify(token).user().email();
     }
 
     public Long extractId(String token) {
-        String id = parseClaims(token).get("id", String.class);
-        return Long.parseLong(id);
+        Long id = verify(token).user().id();
+        if (id == null) {
+            throw new NumberFormatException("The token doesn't carry an id claim");
+        }
+        return id;
+    }
+
+    public Long extractIdIfPresent(String token) {
+        return verify(token).user().id();
     }
+
     public String extractRole(String token) {
-        return parseClaims(token).get("role", String.class);
+        return verify(token).user().role();
+    }
+
+    public AuthenticatedUserRecord authenticate(String authorization) {
+        return verify(tokenParser(authorization)).user();
+    }
+
+    private VerifiedToken verify(String token) {
+        String tokenHash = hash(token);
+        VerifiedToken verifiedToken = verifiedTokens.getIfPresent(tokenHash);
+
+        if (verifiedToken == null || verifiedToken.isExpired()) {
+            verifiedToken = new VerifiedToken(parseClaims(token));
+            verifiedTokens.put(tokenHash, verifiedToken);
+        }
+
+        return verifiedToken;
     }
 
     private Claims parseClaims(String token) {
-        return Jwts.parser()
-                .verifyWith(secretKey)
-                .build()
+        return jwtParser
                 .parseSignedClaims(token)
                 .getPayload();
     }
 
     private boolean isTokenExpired(String token) {
-        return parseClaims(token).getExpiration().before(new Date());
+        return verify(token).isExpired();
+    }
+
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
     }
 
     public String tokenParser(String authorization){
@@ -51,8 +103,7 @@ public class JwtUtils {
     }
 
     public String getEmailFromToken(String authorization){
-        String token = authorization.substring(7);
-        return extractUsername(token);
+        return authenticate(authorization).email();
     }
 
     public Long getIdFromToken(String authorization){
@@ -60,4 +111,46 @@ public class JwtUtils {
         return extractId(token);
     }
 
-}
\ No newline at end of file
+    public Long getIdFromTokenIfPresent(String authorization){
+        return authenticate(authorization).id();
+    }
+
+    private record VerifiedToken(AuthenticatedUserRecord user, Date expiresAt) {
+        VerifiedToken(Claims claims) {
+            this(new AuthenticatedUserRecord(parseId(claims.get("id", String.class)), claims.getSubject(), claims.get("role", String.class)),
+                    claims.getExpiration());
+        }
+
+        private static Long parseId(String id) {
+            return id != null && !id.isBlank() ? Long.parseLong(id) : null;
+        }
+
+        boolean isExpired() {
+            return expiresAt != null && expiresAt.before(new Date());
+        }
+    }
+
+    /**
+     * Keeps a verified token only until it expires, and never longer than the configured maximum.
+     */
+    private record VerifiedTokenExpiry(long maxTtlNanos) implements Expiry<String, VerifiedToken> {
+        @Override
+        public long expireAfterCreate(String key, VerifiedToken value, long currentTime) {
+            if (value.expiresAt() == null) {
+                return maxTtlNanos;
+            }
+            long untilExpiration = TimeUnit.MILLISECONDS.toNanos(value.expiresAt().getTime() - System.currentTimeMillis());
+            return Math.max(0, Math.min(maxTtlNanos, untilExpiration));
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, VerifiedToken value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, VerifiedToken value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
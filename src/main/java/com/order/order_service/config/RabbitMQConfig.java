@@ -6,6 +6,7 @@ import org.springframework.amqp.core.BindingBuilder;
 import org.springframework.amqp.core.Queue;
 import org.springframework.amqp.core.TopicExchange;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
@@ -15,6 +16,8 @@ import org.springframework.amqp.rabbit.core.RabbitTemplate;
 public class RabbitMQConfig {
     public static final String EXCHANGE_NAME = "email-exchange";
     public static final String QUEUE_PDF = "pdf-queue";
+    public static final String PRODUCT_EXCHANGE_NAME = "product-exchange";
+    public static final String QUEUE_PRODUCT_STOCK = "order-product-stock-queue";
 
     @Bean
     public TopicExchange mailExchange() {
@@ -31,15 +34,33 @@ public class RabbitMQConfig {
         return BindingBuilder.bind(pdfQueue).to(mailExchange).with("user.pdf");
     }
 
+    @Bean
+    public TopicExchange productExchange() {
+        return new TopicExchange(PRODUCT_EXCHANGE_NAME);
+    }
+
+    @Bean
+    public Queue productStockQueue() {
+        return new Queue(QUEUE_PRODUCT_STOCK, true);
+    }
+
+    @Bean
+    public Binding productStockBinding(Queue productStockQueue, TopicExchange productExchange) {
+        return BindingBuilder.bind(productStockQueue).to(productExchange).with("product.stock");
+    }
+
     @Bean
     public Jackson2JsonMessageConverter messageConverter() {
         return new Jackson2JsonMessageConverter();
     }
 
     @Bean
-    public RabbitTemplate rabbitTemplate(ConnectionFactory connectionFactory, Jackson2JsonMessageConverter messageConverter) {
+    public RabbitTemplate rabbitTemplate(ConnectionFactory connectionFactory, Jackson2JsonMessageConverter messageConverter,
+                                         @Value("${outbox.publisher.confirms-enabled:false}") boolean confirmsEnabled) {
         RabbitTemplate rabbitTemplate = new RabbitTemplate(connectionFactory);
         rabbitTemplate.setMessageConverter(messageConverter);
+        // Unroutable messages come back through the returns callback and fail their correlated confirm
+        rabbitTemplate.setMandatory(confirmsEnabled);
         return rabbitTemplate;
     }
 }
\ No newline at end of file
@@ -1,18 +1,148 @@
 package com.order.order_service.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.http.client.SimpleClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
+import java.net.URI;
+
 @Configuration
 public class RestTemplateConfig {
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${http.client.pooled:true}")
+    private boolean pooled;
+
+    @Value("${http.client.connect-timeout-ms:2000}")
+    private int connectTimeoutMs;
+
+    @Value("${http.client.read-timeout-ms:2000}")
+    private int readTimeoutMs;
+
+    @Value("${http.client.max-total:200}")
+    private int maxTotal;
+
+    @Value("${http.client.default-max-per-route:20}")
+    private int defaultMaxPerRoute;
+
+    @Value("${http.client.product-service.max-per-route:100}")
+    private int productServiceMaxPerRoute;
+
+    @Value("${http.client.user-service.max-per-route:50}")
+    private int userServiceMaxPerRoute;
+
+    @Value("${http.client.connection-request-timeout-ms:1000}")
+    private long connectionRequestTimeoutMs;
+
+    @Value("${http.client.idle-eviction-ms:30000}")
+    private long idleEvictionMs;
+
+    @Value("${http.client.connection-ttl-ms:300000}")
+    private long connectionTtlMs;
+
+    @Value("${product.details.deadline-ms:2000}")
+    private int productDetailsDeadlineMs;
+
+    @Value("${PRODUCT_SERVICE_URL}")
+    private String PRODUCT_SERVICE_URL;
+
+    @Value("${USER_SERVICE_URL}")
+    private String USER_SERVICE_URL;
+
     @Bean
-    public RestTemplate restTemplate() {
+    public ClientHttpRequestFactory restTemplateRequestFactory() {
+        if (!pooled) {
+            return simpleRequestFactory(connectTimeoutMs, readTimeoutMs);
+        }
+
+        PoolingHttpClientConnectionManager connectionManager = connectionManager(maxTotal, defaultMaxPerRoute, connectTimeoutMs, readTimeoutMs, connectionTtlMs);
+        connectionManager.setMaxPerRoute(route(PRODUCT_SERVICE_URL), productServiceMaxPerRoute);
+        connectionManager.setMaxPerRoute(route(USER_SERVICE_URL), userServiceMaxPerRoute);
+
+        new PoolingHttpClientConnectionManagerMetricsBinder(connectionManager, "restTemplate").bindTo(meterRegistry);
+
+        return pooledRequestFactory(connectionManager, readTimeoutMs, connectionRequestTimeoutMs, idleEvictionMs);
+    }
+
+    @Bean
+    @Primary
+    public RestTemplate restTemplate(ClientHttpRequestFactory restTemplateRequestFactory) {
+        return new RestTemplate(restTemplateRequestFactory);
+    }
+
+    /**
+     * Shares the pooled client but caps each response at the product details deadline. Interrupting a worker does not
+     * abort a blocking socket read, so this timeout is what actually ends a fetch the caller has stopped waiting for.
+     */
+    @Bean
+    public RestTemplate productDetailsRestTemplate(ClientHttpRequestFactory restTemplateRequestFactory) {
+        if (restTemplateRequestFactory instanceof HttpComponentsClientHttpRequestFactory pooledFactory) {
+            HttpComponentsClientHttpRequestFactory factory = new HttpComponentsClientHttpRequestFactory(pooledFactory.getHttpClient());
+            factory.setReadTimeout(productDetailsDeadlineMs);
+            return new RestTemplate(factory);
+        }
+        return new RestTemplate(simpleRequestFactory(connectTimeoutMs, productDetailsDeadlineMs));
+    }
+
+    public static SimpleClientHttpRequestFactory simpleRequestFactory(int connectTimeoutMs, int readTimeoutMs) {
         SimpleClientHttpRequestFactory factory = new SimpleClientHttpRequestFactory();
-        factory.setConnectTimeout(2000);
-        factory.setReadTimeout(2000);
-        return new RestTemplate(factory);
+        factory.setConnectTimeout(connectTimeoutMs);
+        factory.setReadTimeout(readTimeoutMs);
+        return factory;
+    }
+
+    public static PoolingHttpClientConnectionManager connectionManager(int maxTotal, int defaultMaxPerRoute, int connectTimeoutMs,
+                                                                       int readTimeoutMs, long connectionTtlMs) {
+        return PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(maxTotal)
+                .setMaxConnPerRoute(defaultMaxPerRoute)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.ofMilliseconds(connectTimeoutMs))
+                        .setSocketTimeout(Timeout.ofMilliseconds(readTimeoutMs))
+                        .setTimeToLive(TimeValue.ofMilliseconds(connectionTtlMs))
+                        .setValidateAfterInactivity(TimeValue.ofSeconds(2))
+                        .build())
+                .build();
+    }
+
+    public static HttpComponentsClientHttpRequestFactory pooledRequestFactory(PoolingHttpClientConnectionManager connectionManager, int readTimeoutMs,
+                                                                              long connectionRequestTimeoutMs, long idleEvictionMs) {
+        CloseableHttpClient httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.ofMilliseconds(connectionRequestTimeoutMs))
+                        .setResponseTimeout(Timeout.ofMilliseconds(readTimeoutMs))
+                        .build())
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.ofMilliseconds(idleEvictionMs))
+                .build();
+
+        return new HttpComponentsClientHttpRequestFactory(httpClient);
+    }
+
+    private static HttpRoute route(String serviceUrl) {
+        URI uri = URI.create(serviceUrl);
+        int port = uri.getPort() != -1 ? uri.getPort() : ("https".equalsIgnoreCase(uri.getScheme()) ? 443 : 80);
+        return new HttpRoute(new HttpHost(uri.getScheme(), uri.getHost(), port));
     }
 }
@@ -0,0 +1,42 @@
+package com.order.order_service.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    @Autowired
+    private AuthenticatedUserArgumentResolver authenticatedUserArgumentResolver;
+
+    @Autowired
+    @Qualifier("orderStreamExecutor")
+    private ThreadPoolTaskExecutor orderStreamExecutor;
+
+    @Value("${order.stream.timeout-ms:600000}")
+    private long streamTimeoutMs;
+
+    @Override
+    public void addArgumentResolvers(List<HandlerMethodArgumentResolver> resolvers) {
+        resolvers.add(authenticatedUserArgumentResolver);
+    }
+
+    /**
+     * The executor and timeout here apply to every async MVC handler, not only the order streams. Today the
+     * StreamingResponseBody streams are the only async handlers, so the stream pool doubles as the MVC async
+     * executor; a Callable or StreamingResponseBody endpoint added later would share its threads and its timeout.
+     */
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(orderStreamExecutor);
+        configurer.setDefaultTimeout(streamTimeoutMs);
+    }
+}
@@ -1,6 +1,5 @@
 package com.order.order_service.controllers;
 
-import com.order.order_service.config.JwtUtils;
 import com.order.order_service.dtos.*;
 import com.order.order_service.exceptions.OrderException;
 import com.order.order_service.exceptions.OrderItemException;
@@ -8,16 +7,18 @@ import com.order.order_service.exceptions.OrderNotFoundException;
 import com.order.order_service.services.OrderItemService;
 import com.order.order_service.services.OrderService;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.ExampleObject;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
-import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 import java.util.Set;
@@ -32,10 +33,8 @@ public class OrderController {
     @Autowired
     private OrderItemService orderItemService;
 
-    @Autowired
-    private JwtUtils jwtUtils;
-
-    @Operation(summary = "Get all orders", description = "Retrieve a list of all orders")
+    @Operation(summary = "Get all orders", description = "Retrieve a list of all orders. Prefer the paged or streaming variants",
+            deprecated = true)
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "Successful retrieval of orders",
                     content = @Content(
@@ -52,16 +51,15 @@ public class OrderController {
 
 
     @Operation(summary = "Get all orders for the authenticated user",
-            description = "Retrieve all orders associated with the authenticated user")
+            description = "Retrieve all orders associated with the authenticated user. Prefer the paged or streaming variants",
+            deprecated = true)
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "Successful retrieval of user's orders",
                     content = @Content(mediaType = "application/json", schema = @Schema(implementation = OrderDTO.class)))
     })
     @GetMapping("/user")
-    public ResponseEntity<Set<OrderDTO>> getAllOrdersByUserId(HttpServletRequest request) {
-        Long id = jwtUtils.getIdFromToken(request.getHeader("Authorization"));
-
-        return orderService.getAllOrdersByUserId(id);
+    public ResponseEntity<Set<OrderDTO>> getAllOrdersByUserId(@Parameter(hidden = true) AuthenticatedUserRecord user) {
+        return orderService.getAllOrdersByUserId(user.id());
     }
 
 
@@ -77,6 +75,99 @@ public class OrderController {
     }
 
 
+    @Operation(summary = "Get a page of orders (admin)",
+            description = "Retrieve up to size orders with an ID greater than after, in ID order. Pass nextCursor as after to get the next page")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Successful retrieval of the page",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = OrderPageRecord.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid page size",
+                    content = @Content(mediaType = "application/json",
+                            examples = @ExampleObject(value = "The page size must be greater than zero")))
+    })
+    @GetMapping("/admin/page")
+    public ResponseEntity<OrderPageRecord> getOrdersPage(@RequestParam(required = false) Long after,
+                                                         @RequestParam(required = false) Integer size) throws OrderException {
+        return orderService.getOrdersPage(after, size);
+    }
+
+
+    @Operation(summary = "Get a page of orders for the authenticated user",
+            description = "Retrieve up to size orders of the authenticated user with an ID greater than after, in ID order")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Successful retrieval of the page",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = OrderPageRecord.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid page size",
+                    content = @Content(mediaType = "application/json",
+                            examples = @ExampleObject(value = "The page size must be greater than zero")))
+    })
+    @GetMapping("/user/page")
+    public ResponseEntity<OrderPageRecord> getOrdersPageByUserId(@RequestParam(required = false) Long after,
+                                                                 @RequestParam(required = false) Integer size,
+                                                                 @Parameter(hidden = true) AuthenticatedUserRecord user) throws OrderException {
+        return orderService.getOrdersPageByUserId(user.id(), after, size);
+    }
+
+
+    @Operation(summary = "Get a page of orders by user ID (admin)",
+            description = "Retrieve up to size orders of a specific user with an ID greater than after, in ID order (admin access)")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Successful retrieval of the page",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = OrderPageRecord.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid page size",
+                    content = @Content(mediaType = "application/json",
+                            examples = @ExampleObject(value = "The page size must be greater than zero")))
+    })
+    @GetMapping("/admin/{userId}/page")
+    public ResponseEntity<OrderPageRecord> getOrdersPageByUserId(@PathVariable Long userId,
+                                                                 @RequestParam(required = false) Long after,
+                                                                 @RequestParam(required = false) Integer size) throws OrderException {
+        return orderService.getOrdersPageByUserId(userId, after, size);
+    }
+
+
+    @Operation(summary = "Stream all orders (admin)",
+            description = "Stream every order as newline-delimited JSON, one order per line, in ID order")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Orders streamed",
+                    content = @Content(mediaType = MediaType.APPLICATION_NDJSON_VALUE, schema = @Schema(implementation = OrderDTO.class)))
+    })
+    @GetMapping(value = "/admin/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllOrders() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(orderService::streamAllOrders);
+    }
+
+
+    @Operation(summary = "Stream all orders for the authenticated user",
+            description = "Stream the orders of the authenticated user as newline-delimited JSON, in ID order")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Orders streamed",
+                    content = @Content(mediaType = MediaType.APPLICATION_NDJSON_VALUE, schema = @Schema(implementation = OrderDTO.class)))
+    })
+    @GetMapping(value = "/user/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamOrdersByUserId(@Parameter(hidden = true) AuthenticatedUserRecord user) {
+        Long userId = user.id();
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(outputStream -> orderService.streamOrdersByUserId(userId, outputStream));
+    }
+
+
+    @Operation(summary = "Stream all orders by user ID (admin)",
+            description = "Stream the orders of a specific user as newline-delimited JSON, in ID order (admin access)")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Orders streamed",
+                    content = @Content(mediaType = MediaType.APPLICATION_NDJSON_VALUE, schema = @Schema(implementation = OrderDTO.class)))
+    })
+    @GetMapping(value = "/admin/{userId}/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamOrdersByUserId(@PathVariable Long userId) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(outputStream -> orderService.streamOrdersByUserId(userId, outputStream));
+    }
+
+
     @Operation(summary = "Get order by ID (user)",
             description = "Retrieve the details of an order by its ID for the authenticated user")
     @ApiResponses({
@@ -87,9 +178,8 @@ public class OrderController {
                             examples = @ExampleObject(value = "Order not found with ID: 1")))
     })
     @GetMapping("/user/{orderId}")
-    public ResponseEntity<OrderDTO> getOrderById(@PathVariable Long orderId, HttpServletRequest request) throws OrderException {
-        Long userId = jwtUtils.getIdFromToken(request.getHeader("Authorization"));
-        return orderService.getOrderByUserId(userId, orderId);
+    public ResponseEntity<OrderDTO> getOrderById(@PathVariable Long orderId, @Parameter(hidden = true) AuthenticatedUserRecord user) throws OrderException {
+        return orderService.getOrderByUserId(user.id(), orderId);
     }
 
 
@@ -119,9 +209,8 @@ public class OrderController {
                             examples = @ExampleObject(value = "Order status cannot be null or empty")))
     })
     @PostMapping("/user")
-    public ResponseEntity<OrderCreatedRecord> createOrder(@RequestBody NewOrderRecord newOrder, HttpServletRequest request) throws OrderException {
-        String email = jwtUtils.getEmailFromToken(request.getHeader("Authorization"));
-        return orderService.createOrder(email, newOrder);
+    public ResponseEntity<OrderCreatedRecord> createOrder(@RequestBody NewOrderRecord newOrder, @Parameter(hidden = true) AuthenticatedUserRecord user) throws OrderException {
+        return orderService.createOrder(user.id(), user.email(), newOrder);
     }
 
 
@@ -138,10 +227,8 @@ public class OrderController {
                             examples = @ExampleObject(value = "Order not found with ID: 1")))
     })
     @PutMapping("/user/{orderId}")
-    public ResponseEntity<OrderDTO> changeStatus(@PathVariable Long orderId, @RequestBody UpdateOrderRecord updateOrderRecord, HttpServletRequest request) throws OrderException {
-        Long userId = jwtUtils.getIdFromToken(request.getHeader("Authorization"));
-        String email = jwtUtils.getEmailFromToken(request.getHeader("Authorization"));
-        return orderService.changeStatus(userId, email, orderId, updateOrderRecord.orderStatus());
+    public ResponseEntity<OrderDTO> changeStatus(@PathVariable Long orderId, @RequestBody UpdateOrderRecord updateOrderRecord, @Parameter(hidden = true) AuthenticatedUserRecord user) throws OrderException {
+        return orderService.changeStatus(user.id(), user.email(), orderId, updateOrderRecord.orderStatus());
     }
 
 
@@ -156,10 +243,8 @@ public class OrderController {
                             examples = @ExampleObject(value = "Order not found with ID: 1")))
     })
     @DeleteMapping("/user/{orderId}")
-    public ResponseEntity<String> deleteOrder(@PathVariable Long orderId, HttpServletRequest request) throws OrderNotFoundException, OrderException {
-        Long userId = jwtUtils.extractId(request.getHeader("Authorization"));
-
-        return orderService.deleteOrderUser(userId, orderId);
+    public ResponseEntity<String> deleteOrder(@PathVariable Long orderId, @Parameter(hidden = true) AuthenticatedUserRecord user) throws OrderNotFoundException, OrderException {
+        return orderService.deleteOrderUser(user.id(), orderId);
     }
 
 
@@ -191,10 +276,8 @@ public class OrderController {
                     content = @Content(mediaType = "application/json", schema = @Schema(implementation = OrderItemRecord.class)))
     })
     @GetMapping("/user/item/{orderId}")
-    public ResponseEntity<Set<OrderItemRecord>> getAllOrderItemsByOrderId(@PathVariable Long orderId, HttpServletRequest request) throws OrderException {
-        Long userId = jwtUtils.getIdFromToken(request.getHeader("Authorization"));
-
-        return orderItemService.getAllOrderItemsByOrderId(userId, orderId);
+    public ResponseEntity<Set<OrderItemRecord>> getAllOrderItemsByOrderId(@PathVariable Long orderId, @Parameter(hidden = true) AuthenticatedUserRecord user) throws OrderException {
+        return orderItemService.getAllOrderItemsByOrderId(user.id(), orderId);
     }
 
 
@@ -210,9 +293,8 @@ public class OrderController {
             )
     })
     @PostMapping("/user/item/{orderId}")
-    public ResponseEntity<OrderItemRecord> addOrderItem(@PathVariable Long orderId, @RequestBody ProductQuantityRecord newOrderItem, HttpServletRequest request) throws OrderException, OrderItemException {
-        Long userId = jwtUtils.getIdFromToken(request.getHeader("Authorization"));
-        return orderItemService.addOrderItem(userId, orderId, newOrderItem);
+    public ResponseEntity<OrderItemRecord> addOrderItem(@PathVariable Long orderId, @RequestBody ProductQuantityRecord newOrderItem, @Parameter(hidden = true) AuthenticatedUserRecord user) throws OrderException, OrderItemException {
+        return orderItemService.addOrderItem(user.id(), orderId, newOrderItem);
     }
 
 
@@ -235,9 +317,8 @@ public class OrderController {
             )
     })
     @PutMapping("/user/item/{orderItemId}")
-    public ResponseEntity<OrderItemRecord> updateOrderItem(@PathVariable Long orderItemId, @RequestBody OrderItemUpdateRecord orderItemUpdateRecord, HttpServletRequest request) throws OrderItemException, OrderException {
-        Long userId = jwtUtils.getIdFromToken(request.getHeader("Authorization"));
-        return orderItemService.updateOrderItemQuantity(userId, orderItemId, orderItemUpdateRecord.quantity());
+    public ResponseEntity<OrderItemRecord> updateOrderItem(@PathVariable Long orderItemId, @RequestBody OrderItemUpdateRecord orderItemUpdateRecord, @Parameter(hidden = true) AuthenticatedUserRecord user) throws OrderItemException, OrderException {
+        return orderItemService.updateOrderItemQuantity(user.id(), orderItemId, orderItemUpdateRecord.quantity());
     }
 
 
@@ -251,9 +332,8 @@ public class OrderController {
             )
     })
     @DeleteMapping("user/item/{orderItemId}")
-    public ResponseEntity<String> deleteOrderItem(@PathVariable Long orderItemId, HttpServletRequest request) throws OrderNotFoundException, OrderItemException, OrderException {
-        Long userId = jwtUtils.getIdFromToken(request.getHeader("Authorization"));
-        return orderItemService.deleteOrderItem(userId, orderItemId);
+    public ResponseEntity<String> deleteOrderItem(@PathVariable Long orderItemId, @Parameter(hidden = true) AuthenticatedUserRecord user) throws OrderNotFoundException, OrderItemException, OrderException {
+        return orderItemService.deleteOrderItem(user.id(), orderItemId);
     }
 
 }
\ No newline at end of file
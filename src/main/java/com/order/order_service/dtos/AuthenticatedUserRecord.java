@@ -0,0 +1,4 @@
+package com.order.order_service.dtos;
+
+public record AuthenticatedUserRecord(Long id, String email, String role) {
+}
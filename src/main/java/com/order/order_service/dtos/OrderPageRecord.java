@@ -0,0 +1,10 @@
+package com.order.order_service.dtos;
+
+import java.util.List;
+
+/**
+ * One page of orders in id order. {@code nextCursor} is the id to pass as {@code after} for the next page, or null
+ * when this is the last page.
+ */
+public record OrderPageRecord(List<OrderDTO> orders, Long nextCursor) {
+}
@@ -0,0 +1,7 @@
+package com.order.order_service.dtos;
+
+/**
+ * Stock-change event published by product-service; a null quantity means the product was removed.
+ */
+public record ProductStockEventRecord(Long productId, Integer quantity) {
+}
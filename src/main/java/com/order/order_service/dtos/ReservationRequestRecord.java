@@ -0,0 +1,6 @@
+package com.order.order_service.dtos;
+
+import java.util.List;
+
+public record ReservationRequestRecord(Long orderId, List<ProductQuantityRecord> products) {
+}
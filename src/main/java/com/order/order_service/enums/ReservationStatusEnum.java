@@ -0,0 +1,7 @@
+package com.order.order_service.enums;
+
+public enum ReservationStatusEnum {
+    RESERVED,
+    NOT_FOUND,
+    NO_STOCK
+}
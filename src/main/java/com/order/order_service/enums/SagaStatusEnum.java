@@ -0,0 +1,7 @@
+package com.order.order_service.enums;
+
+public enum SagaStatusEnum {
+    PENDING_STOCK,
+    CONFIRMED,
+    COMPENSATING
+}
@@ -1,8 +1,10 @@
 package com.order.order_service.models;
 
 import com.order.order_service.enums.OrderStatusEnum;
+import com.order.order_service.enums.SagaStatusEnum;
 import jakarta.persistence.*;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -10,7 +12,8 @@ import java.util.List;
 public class OrderEntity {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_entity_seq")
+    @SequenceGenerator(name = "order_entity_seq", sequenceName = "order_entity_seq", allocationSize = 50)
     private Long id;
 
     private Long userId;
@@ -18,6 +21,13 @@ public class OrderEntity {
     @Enumerated
     private OrderStatusEnum status;
 
+    @Enumerated(EnumType.STRING)
+    private SagaStatusEnum sagaStatus;
+
+    private LocalDateTime sagaUpdatedAt;
+
+    private LocalDateTime sagaLeaseUntil;
+
     @OneToMany(mappedBy = "orderEntity", cascade = CascadeType.ALL)
     private List<OrderItem> orderItemList;
 
@@ -25,6 +35,8 @@ public class OrderEntity {
         this.orderItemList = new ArrayList<>();
         this.userId = userId;
         this.status = status;
+        this.sagaStatus = SagaStatusEnum.CONFIRMED;
+        this.sagaUpdatedAt = LocalDateTime.now();
     }
 
     public OrderEntity() {}
@@ -49,6 +61,23 @@ public class OrderEntity {
         this.status = status;
     }
 
+    public SagaStatusEnum getSagaStatus() {
+        return sagaStatus;
+    }
+
+    public void setSagaStatus(SagaStatusEnum sagaStatus) {
+        this.sagaStatus = sagaStatus;
+        this.sagaUpdatedAt = LocalDateTime.now();
+    }
+
+    public LocalDateTime getSagaUpdatedAt() {
+        return sagaUpdatedAt;
+    }
+
+    public LocalDateTime getSagaLeaseUntil() {
+        return sagaLeaseUntil;
+    }
+
     public List<OrderItem> getOrderItemList() {
         return orderItemList;
     }
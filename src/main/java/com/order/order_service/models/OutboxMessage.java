@@ -7,17 +7,21 @@ import java.time.LocalDateTime;
 @Entity
 public class OutboxMessage {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "outbox_message_seq")
+    @SequenceGenerator(name = "outbox_message_seq", sequenceName = "outbox_message_seq", allocationSize = 50)
     private Long id;
 
     private String eventType;
+    private String payloadType;
     private String exchange;
     private String routingKey;
     private LocalDateTime createdAt;
     private boolean processed;
     private int retryCount;
+    private LocalDateTime nextAttemptAt;
+    private String leaseOwner;
+    private LocalDateTime leaseUntil;
 
-    @Lob
     @Column(columnDefinition = "TEXT")
     private String payload;
 
@@ -33,6 +37,7 @@ public class OutboxMessage {
         this.createdAt = createdAt;
         this.processed = processed;
         this.retryCount = retryCount;
+        this.nextAttemptAt = createdAt;
     }
 
     public Long getId() {
@@ -47,6 +52,14 @@ public class OutboxMessage {
         this.eventType = eventType;
     }
 
+    public String getPayloadType() {
+        return payloadType;
+    }
+
+    public void setPayloadType(String payloadType) {
+        this.payloadType = payloadType;
+    }
+
     public String getExchange() {
         return exchange;
     }
@@ -87,6 +100,30 @@ public class OutboxMessage {
         this.retryCount = retryCount;
     }
 
+    public LocalDateTime getNextAttemptAt() {
+        return nextAttemptAt;
+    }
+
+    public void setNextAttemptAt(LocalDateTime nextAttemptAt) {
+        this.nextAttemptAt = nextAttemptAt;
+    }
+
+    public String getLeaseOwner() {
+        return leaseOwner;
+    }
+
+    public void setLeaseOwner(String leaseOwner) {
+        this.leaseOwner = leaseOwner;
+    }
+
+    public LocalDateTime getLeaseUntil() {
+        return leaseUntil;
+    }
+
+    public void setLeaseUntil(LocalDateTime leaseUntil) {
+        this.leaseUntil = leaseUntil;
+    }
+
     public String getPayload() {
         return payload;
     }
@@ -2,7 +2,15 @@ package com.order.order_service.repositories;
 
 import com.order.order_service.models.OrderItem;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
 
 public interface OrderItemRepository extends JpaRepository<OrderItem, Long> {
     void deleteById(Long id);
+
+    // The derived query left-joins order_entity and filters on its id, which keeps H2 from using the foreign key index
+    @Query("SELECT i FROM OrderItem i WHERE i.orderEntity.id = :orderId")
+    List<OrderItem> findByOrderEntityId(@Param("orderId") Long orderId);
 }
@@ -1,10 +1,99 @@
 package com.order.order_service.repositories;
 
+import com.order.order_service.enums.SagaStatusEnum;
 import com.order.order_service.models.OrderEntity;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 public interface OrderRepository extends JpaRepository<OrderEntity, Long> {
-    List<OrderEntity> findByUserId(Long id);
+    /*
+     * Every listing loads orders together with their items, since each order is turned into an OrderDTO that walks
+     * the item list. Leaving the collection lazy costs one extra query per order.
+     *
+     * Reads take the saga status to show: callers pass CONFIRMED, so orders still reserving stock or being
+     * compensated are never returned.
+     */
+
+    @Override
+    @EntityGraph(attributePaths = "orderItemList")
+    List<OrderEntity> findAll();
+
+    @EntityGraph(attributePaths = "orderItemList")
+    List<OrderEntity> findBySagaStatus(SagaStatusEnum sagaStatus);
+
+    @EntityGraph(attributePaths = "orderItemList")
+    List<OrderEntity> findByUserIdAndSagaStatus(Long userId, SagaStatusEnum sagaStatus);
+
+    @EntityGraph(attributePaths = "orderItemList")
+    Optional<OrderEntity> findByIdAndSagaStatus(Long id, SagaStatusEnum sagaStatus);
+
+    /*
+     * Pages and stream chunks select ids first and then fetch those orders with their items. Limiting a query that fetch-joins a
+     * collection would make Hibernate paginate in memory.
+     */
+
+    @Query("SELECT o.id FROM OrderEntity o WHERE o.sagaStatus = :sagaStatus AND o.id > :afterId ORDER BY o.id")
+    List<Long> findPageIdsAfter(@Param("sagaStatus") SagaStatusEnum sagaStatus,
+                                @Param("afterId") Long afterId,
+                                Limit limit);
+
+    @Query("SELECT o.id FROM OrderEntity o " +
+            "WHERE o.userId = :userId AND o.sagaStatus = :sagaStatus AND o.id > :afterId ORDER BY o.id")
+    List<Long> findPageIdsByUserIdAfter(@Param("userId") Long userId,
+                                        @Param("sagaStatus") SagaStatusEnum sagaStatus,
+                                        @Param("afterId") Long afterId,
+                                        Limit limit);
+
+    @EntityGraph(attributePaths = "orderItemList")
+    @Query("SELECT o FROM OrderEntity o WHERE o.id IN :ids ORDER BY o.id")
+    List<OrderEntity> findWithItemsByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT o.id FROM OrderEntity o WHERE o.sagaStatus = :sagaStatus AND o.sagaUpdatedAt < :before ORDER BY o.id")
+    List<Long> findSagaIds(@Param("sagaStatus") SagaStatusEnum sagaStatus,
+                           @Param("before") LocalDateTime before,
+                           Limit limit);
+
+    @Modifying
+    @Query("UPDATE OrderEntity o SET o.sagaStatus = :to, o.sagaUpdatedAt = :now, o.sagaLeaseUntil = :leaseUntil " +
+            "WHERE o.id = :id AND o.sagaStatus = :from")
+    int transitionSaga(@Param("id") Long id,
+                       @Param("from") SagaStatusEnum from,
+                       @Param("to") SagaStatusEnum to,
+                       @Param("now") LocalDateTime now,
+                       @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    /**
+     * Same as {@link #transitionSaga} but only for orders whose saga has not been touched since {@code before} and
+     * whose lease, if any, ran out, so that concurrent recovery runs claim each stale order once and never take an
+     * order another runner is still compensating.
+     */
+    @Modifying
+    @Query("UPDATE OrderEntity o SET o.sagaStatus = :to, o.sagaUpdatedAt = :now, o.sagaLeaseUntil = :leaseUntil " +
+            "WHERE o.id = :id AND o.sagaStatus = :from AND o.sagaUpdatedAt < :before " +
+            "AND (o.sagaLeaseUntil IS NULL OR o.sagaLeaseUntil < :now)")
+    int claimStaleSaga(@Param("id") Long id,
+                       @Param("from") SagaStatusEnum from,
+                       @Param("to") SagaStatusEnum to,
+                       @Param("before") LocalDateTime before,
+                       @Param("now") LocalDateTime now,
+                       @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    /**
+     * Gives up the lease after a failed release; the retry delay counts from now.
+     */
+    @Modifying
+    @Query("UPDATE OrderEntity o SET o.sagaUpdatedAt = :now, o.sagaLeaseUntil = null " +
+            "WHERE o.id = :id AND o.sagaStatus = :status")
+    int releaseSagaLease(@Param("id") Long id,
+                         @Param("status") SagaStatusEnum status,
+                         @Param("now") LocalDateTime now);
 }
@@ -2,9 +2,44 @@ package com.order.order_service.repositories;
 
 import com.order.order_service.models.OutboxMessage;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 public interface OutboxMessageRepository extends JpaRepository<OutboxMessage, Long> {
-    List<OutboxMessage> findByProcessedFalseAndRetryCountLessThan(int maxRetries);
+    List<OutboxMessage> findByProcessedFalseAndRetryCountLessThanAndNextAttemptAtLessThanEqual(int maxRetries, LocalDateTime now);
+
+    @Query(value = "SELECT * FROM outbox_message " +
+            "WHERE processed = false AND next_attempt_at <= :now AND retry_count < :maxRetries AND id > :afterId " +
+            "AND (lease_until IS NULL OR lease_until < :now) " +
+            "ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<OutboxMessage> findClaimableMessages(@Param("maxRetries") int maxRetries,
+                                              @Param("afterId") Long afterId,
+                                              @Param("now") LocalDateTime now,
+                                              @Param("limit") int limit);
+
+    @Query(value = "SELECT * FROM outbox_message " +
+            "WHERE processed = false AND next_attempt_at <= :now AND retry_count < :maxRetries AND id IN (:ids) " +
+            "AND (lease_until IS NULL OR lease_until < :now) " +
+            "ORDER BY id FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<OutboxMessage> findClaimableMessagesByIds(@Param("maxRetries") int maxRetries,
+                                                   @Param("ids") List<Long> ids,
+                                                   @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("update OutboxMessage m set m.leaseOwner = :owner, m.leaseUntil = :leaseUntil where m.id in :ids")
+    int claimMessages(@Param("ids") List<Long> ids, @Param("owner") String owner, @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    @Modifying
+    @Query("update OutboxMessage m set m.processed = true, m.leaseOwner = null, m.leaseUntil = null " +
+            "where m.id in :ids and m.leaseOwner = :owner")
+    int markProcessed(@Param("ids") List<Long> ids, @Param("owner") String owner);
+
+    @Modifying
+    @Query("update OutboxMessage m set m.retryCount = m.retryCount + 1, m.nextAttemptAt = :nextAttemptAt, " +
+            "m.leaseOwner = null, m.leaseUntil = null where m.id in :ids and m.leaseOwner = :owner")
+    int scheduleRetry(@Param("ids") List<Long> ids, @Param("owner") String owner, @Param("nextAttemptAt") LocalDateTime nextAttemptAt);
 }
@@ -7,7 +7,6 @@ import com.order.order_service.exceptions.OrderException;
 import com.order.order_service.exceptions.OrderItemException;
 import com.order.order_service.models.OrderItem;
 import org.springframework.http.ResponseEntity;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Set;
 
@@ -17,10 +16,8 @@ public interface OrderItemService {
 
     ResponseEntity<Set<OrderItemRecord>> getAllOrderItemsByOrderId(Long userId, Long id) throws OrderException;
 
-    @Transactional(rollbackFor = {Exception.class})
     ResponseEntity<OrderItemRecord> addOrderItem(Long userId, Long OrderId, ProductQuantityRecord productQuantityRecord) throws OrderException, OrderItemException;
 
-    @Transactional(rollbackFor = {Exception.class})
     ResponseEntity<OrderItemRecord> updateOrderItemQuantity(Long userId, Long orderItemId, Integer quantity) throws OrderItemException, OrderException;
 
     ResponseEntity<String> deleteOrderItem(Long userId, Long orderItemId) throws OrderItemException, OrderException;
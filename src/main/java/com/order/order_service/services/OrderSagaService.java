@@ -0,0 +1,9 @@
+package com.order.order_service.services;
+
+public interface OrderSagaService {
+    boolean confirmOrder(Long orderId);
+
+    void compensateOrder(Long orderId);
+
+    void processPendingSagas();
+}
@@ -7,8 +7,11 @@ import com.order.order_service.exceptions.OrderNotFoundException;
 import com.order.order_service.exceptions.ProductServiceException;
 import com.order.order_service.models.OrderEntity;
 import com.order.order_service.models.OrderItem;
+import com.order.order_service.utils.ReservationResults;
 import org.springframework.http.ResponseEntity;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Set;
@@ -18,15 +21,23 @@ public interface OrderService {
 
     ResponseEntity<Set<OrderDTO>> getAllOrdersByUserId(Long id);
 
+    ResponseEntity<OrderPageRecord> getOrdersPage(Long afterId, Integer size) throws OrderException;
+
+    ResponseEntity<OrderPageRecord> getOrdersPageByUserId(Long userId, Long afterId, Integer size) throws OrderException;
+
+    void streamAllOrders(OutputStream outputStream) throws IOException;
+
+    void streamOrdersByUserId(Long userId, OutputStream outputStream) throws IOException;
+
     void saveOrder(OrderEntity orderEntity);
 
     ResponseEntity<OrderDTO> getOrderById(Long id) throws OrderException;
 
     ResponseEntity<OrderDTO> getOrderByUserId(Long userId, Long orderId) throws OrderException;
 
-    ResponseEntity<OrderCreatedRecord> createOrder(String email, NewOrderRecord newOrder) throws OrderException;
+    ResponseEntity<OrderCreatedRecord> createOrder(Long tokenUserId, String email, NewOrderRecord newOrder) throws OrderException;
 
-    OrderItemListWrapper setOrderItemList(HashMap<Long, Integer> existentProducts, List<ProductQuantityRecord> wantedProducts, OrderEntity order);
+    OrderItemListWrapper setOrderItemList(ReservationResults reservations, List<ProductQuantityRecord> wantedProducts, OrderEntity order);
 
     Long getUserIdFromEmail(String email) throws OrderException;
 
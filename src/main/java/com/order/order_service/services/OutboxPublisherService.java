@@ -1,4 +1,7 @@
 package com.order.order_service.services;
 
 public interface OutboxPublisherService {
+    void processOutboxMessages();
+
+    void dispatch(Long messageId);
 }
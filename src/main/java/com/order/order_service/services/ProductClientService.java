@@ -1,18 +1,51 @@
 package com.order.order_service.services;
 
 import com.order.order_service.dtos.ProductQuantityRecord;
+import com.order.order_service.dtos.ProductRecord;
+import com.order.order_service.dtos.ReservationRequestRecord;
 import com.order.order_service.exceptions.OrderException;
 import com.order.order_service.exceptions.ProductServiceException;
 import com.order.order_service.models.OrderItem;
+import com.order.order_service.utils.LongIntHashMap;
+import com.order.order_service.utils.ReservationResults;
 import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
 
-import java.util.HashMap;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 public interface ProductClientService {
     @CircuitBreaker(name = "productBreaker", fallbackMethod = "getExistentProductsFallback")
-    HashMap<Long,Integer> getExistentProducts(List<ProductQuantityRecord> productQuantityRecordList) throws OrderException;
+    LongIntHashMap getExistentProducts(List<ProductQuantityRecord> productQuantityRecordList) throws OrderException;
 
     @CircuitBreaker(name = "productBreaker")
     void updateProducts(List<OrderItem> orderItemList, int factor) throws ProductServiceException;
+
+    /**
+     * Decrements the stock of every product that has enough of it, in one call, and records each reservation under
+     * the order it was made for. Products are accepted or rejected individually; the result holds one status per
+     * requested product id, so a product id must not appear in more than one request. Product-service refuses
+     * reservations for an order whose reservations were already released.
+     */
+    ReservationResults reserveProducts(List<ReservationRequestRecord> reservationRequestList) throws ProductServiceException;
+
+    default ReservationResults reserveProducts(Long orderId, List<ProductQuantityRecord> productQuantityRecordList) throws ProductServiceException {
+        return reserveProducts(List.of(new ReservationRequestRecord(orderId, productQuantityRecordList)));
+    }
+
+    /**
+     * Gives back the stock reserved for the order on the given products. Product-service releases only what it
+     * actually reserved under that order and does it once, so lines that were never reserved are ignored and the
+     * call can be retried after a lost response.
+     */
+    void releaseReservations(Long orderId, List<ProductQuantityRecord> productQuantityRecordList) throws ProductServiceException;
+
+    /**
+     * Gives back part of the stock reserved for the order, so that it keeps at most the quantity on each record for
+     * that product. Unlike {@link #releaseReservations}, the order stays open for further reservations. Releasing down
+     * to a quantity is idempotent, so the call can be retried after a lost response.
+     */
+    void releaseReservationsDownTo(Long orderId, List<ProductQuantityRecord> productQuantityRecordList) throws ProductServiceException;
+
+    Map<Long, ProductRecord> getProductDetails(Collection<Long> productIds);
 }
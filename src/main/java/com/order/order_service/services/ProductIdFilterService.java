@@ -0,0 +1,11 @@
+package com.order.order_service.services;
+
+public interface ProductIdFilterService {
+    boolean mightExist(Long productId);
+
+    void recordNotFound(Long productId);
+
+    void recordExisting(Long productId);
+
+    void rebuild();
+}
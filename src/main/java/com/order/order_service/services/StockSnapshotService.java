@@ -0,0 +1,9 @@
+package com.order.order_service.services;
+
+import com.order.order_service.dtos.ProductStockEventRecord;
+
+public interface StockSnapshotService {
+    void onStockChanged(ProductStockEventRecord event);
+
+    boolean lacksStock(Long productId, int quantity);
+}
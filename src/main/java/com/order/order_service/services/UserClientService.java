@@ -0,0 +1,7 @@
+package com.order.order_service.services;
+
+import com.order.order_service.exceptions.OrderException;
+
+public interface UserClientService {
+    Long getUserIdFromEmail(String email) throws OrderException;
+}
@@ -0,0 +1,240 @@
+package com.order.order_service.services.implementations;
+
+import com.order.order_service.dtos.ProductQuantityRecord;
+import com.order.order_service.dtos.ProductRecord;
+import com.order.order_service.dtos.ReservationRequestRecord;
+import com.order.order_service.enums.ReservationStatusEnum;
+import com.order.order_service.exceptions.OrderException;
+import com.order.order_service.exceptions.ProductServiceException;
+import com.order.order_service.models.OrderItem;
+import com.order.order_service.services.ProductClientService;
+import com.order.order_service.utils.LongIntHashMap;
+import com.order.order_service.utils.ReservationResults;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Merges concurrent stock reservations into one product-service call, so that a burst of orders uses one
+ * productRateLimiter permit per batch instead of one per order. The first caller of a batch waits up to the window
+ * (or until the batch is full), sends the merged call and every caller takes its own products from the response.
+ * Each caller's request keeps its own order id, so product-service still records every reservation under the order
+ * it belongs to and answers every entry with that order id. Callers read their results by order, which lets orders
+ * for the same products share a call; only an order asking for a product it already has in the open batch starts a
+ * new one. Releases and availability checks pass straight through.
+ */
+@Service
+@Primary
+@ConditionalOnProperty(name = "product.batching.enabled", havingValue = "true")
+public class BatchingProductClientServiceImplementation implements ProductClientService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BatchingProductClientServiceImplementation.class);
+
+    @Autowired
+    @Qualifier("remoteProductClientService")
+    private ProductClientService productClientService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${product.batching.window-ms:3}")
+    private long windowMs;
+
+    @Value("${product.batching.max-batch-size:50}")
+    private int maxBatchSize;
+
+    private Batcher reservationBatcher;
+
+    @PostConstruct
+    public void initBatchers() {
+        reservationBatcher = new Batcher();
+    }
+
+    @Override
+    public LongIntHashMap getExistentProducts(List<ProductQuantityRecord> productQuantityRecordList) throws OrderException {
+        return productClientService.getExistentProducts(productQuantityRecordList);
+    }
+
+    @Override
+    public ReservationResults reserveProducts(List<ReservationRequestRecord> reservationRequestList) throws ProductServiceException {
+        ReservationResults merged;
+        try {
+            merged = reservationBatcher.submit(reservationRequestList);
+        } catch (OrderException e) {
+            throw new ProductServiceException(e.getMessage());
+        }
+
+        ReservationResults reservations = new ReservationResults();
+        for (ReservationRequestRecord reservationRequest : reservationRequestList) {
+            ReservationResults orderResults = merged.forOrder(reservationRequest.orderId());
+            for (ProductQuantityRecord productQuantityRecord : reservationRequest.products()) {
+                ReservationStatusEnum status = orderResults.get(productQuantityRecord.id());
+                if (status != null) {
+                    reservations.put(productQuantityRecord.id(), status);
+                }
+            }
+        }
+        return reservations;
+    }
+
+    @Override
+    public void releaseReservations(Long orderId, List<ProductQuantityRecord> productQuantityRecordList) throws ProductServiceException {
+        productClientService.releaseReservations(orderId, productQuantityRecordList);
+    }
+
+    @Override
+    public void releaseReservationsDownTo(Long orderId, List<ProductQuantityRecord> productQuantityRecordList) throws ProductServiceException {
+        productClientService.releaseReservationsDownTo(orderId, productQuantityRecordList);
+    }
+
+    @Override
+    public void updateProducts(List<OrderItem> orderItemList, int factor) throws ProductServiceException {
+        productClientService.updateProducts(orderItemList, factor);
+    }
+
+    @Override
+    public Map<Long, ProductRecord> getProductDetails(Collection<Long> productIds) {
+        return productClientService.getProductDetails(productIds);
+    }
+
+    private static final class Batch {
+        private final List<ReservationRequestRecord> requests = new ArrayList<>();
+        private final Map<Long, Set<Long>> productIdsByOrder = new HashMap<>();
+        private int products;
+        private final CompletableFuture<ReservationResults> result = new CompletableFuture<>();
+        private int callers;
+    }
+
+    private final class Batcher {
+        private final DistributionSummary batchSize;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition batchClosed = lock.newCondition();
+        private Batch openBatch;
+
+        private Batcher() {
+            this.batchSize = DistributionSummary.builder("product.batching.batch.size")
+                    .description("Callers merged into one product-service call")
+                    .tag("operation", "reservation")
+                    .register(meterRegistry);
+        }
+
+        private ReservationResults submit(List<ReservationRequestRecord> reservationRequestList) throws OrderException {
+            Batch batch;
+            boolean leader = false;
+
+            lock.lock();
+            try {
+                batch = openBatch;
+                if (batch == null || !accepts(batch, reservationRequestList)) {
+                    // Closing the current batch early wakes its leader, which sends it right away
+                    batch = new Batch();
+                    openBatch = batch;
+                    batchClosed.signalAll();
+                    leader = true;
+                }
+                add(batch, reservationRequestList);
+                if (batch.callers >= maxBatchSize) {
+                    openBatch = null;
+                    batchClosed.signalAll();
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            if (leader) {
+                // An interrupted leader still sends the batch its followers are waiting on, but without the interrupt
+                // flag set, so the HTTP client doesn't abort the call for all of them
+                boolean interrupted = awaitWindow(batch);
+                send(batch);
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            try {
+                return batch.result.join();
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof OrderException orderException) {
+                    throw orderException;
+                }
+                if (cause instanceof RuntimeException runtimeException) {
+                    throw runtimeException;
+                }
+                throw e;
+            }
+        }
+
+        private boolean accepts(Batch batch, List<ReservationRequestRecord> reservationRequestList) {
+            for (ReservationRequestRecord reservationRequest : reservationRequestList) {
+                Set<Long> orderProductIds = batch.productIdsByOrder.get(reservationRequest.orderId());
+                if (orderProductIds == null) {
+                    continue;
+                }
+                for (ProductQuantityRecord productQuantityRecord : reservationRequest.products()) {
+                    if (orderProductIds.contains(productQuantityRecord.id())) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        private void add(Batch batch, List<ReservationRequestRecord> reservationRequestList) {
+            for (ReservationRequestRecord reservationRequest : reservationRequestList) {
+                Set<Long> orderProductIds = batch.productIdsByOrder.computeIfAbsent(reservationRequest.orderId(), id -> new HashSet<>());
+                for (ProductQuantityRecord productQuantityRecord : reservationRequest.products()) {
+                    orderProductIds.add(productQuantityRecord.id());
+                }
+                batch.products += reservationRequest.products().size();
+                batch.requests.add(reservationRequest);
+            }
+            batch.callers++;
+        }
+
+        private boolean awaitWindow(Batch batch) {
+            boolean interrupted = false;
+            lock.lock();
+            try {
+                long remaining = TimeUnit.MILLISECONDS.toNanos(windowMs);
+                while (openBatch == batch && remaining > 0) {
+                    remaining = batchClosed.awaitNanos(remaining);
+                }
+            } catch (InterruptedException e) {
+                interrupted = true;
+            } finally {
+                if (openBatch == batch) {
+                    openBatch = null;
+                }
+                lock.unlock();
+            }
+            return interrupted;
+        }
+
+        private void send(Batch batch) {
+            batchSize.record(batch.callers);
+            logger.debug("Sending {} products for {} callers in one call", batch.products, batch.callers);
+
+            try {
+                batch.result.complete(productClientService.reserveProducts(batch.requests));
+            } catch (Throwable t) {
+                batch.result.completeExceptionally(t);
+            }
+        }
+    }
+}
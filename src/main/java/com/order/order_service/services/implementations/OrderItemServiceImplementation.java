@@ -4,6 +4,8 @@ import com.order.order_service.dtos.OrderDTO;
 import com.order.order_service.dtos.OrderItemRecord;
 import com.order.order_service.dtos.ProductQuantityRecord;
 import com.order.order_service.enums.OrderStatusEnum;
+import com.order.order_service.enums.ReservationStatusEnum;
+import com.order.order_service.enums.SagaStatusEnum;
 import com.order.order_service.exceptions.*;
 import com.order.order_service.models.OrderEntity;
 import com.order.order_service.models.OrderItem;
@@ -12,6 +14,8 @@ import com.order.order_service.repositories.OrderRepository;
 import com.order.order_service.services.OrderItemService;
 import com.order.order_service.services.OrderService;
 import com.order.order_service.services.ProductClientService;
+import com.order.order_service.services.ProductIdFilterService;
+import com.order.order_service.services.StockSnapshotService;
 import com.order.order_service.utils.Constants;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -19,7 +23,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.*;
 import java.util.stream.Collectors;
@@ -42,6 +46,15 @@ public class OrderItemServiceImplementation implements OrderItemService {
     @Autowired
     private ProductClientService productClientService;
 
+    @Autowired
+    private ProductIdFilterService productIdFilterService;
+
+    @Autowired
+    private StockSnapshotService stockSnapshotService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
     @Override
     public void saveOrderItem(OrderItem orderItem) {
         logger.info("Saving order item: {}", orderItem);
@@ -52,13 +65,13 @@ public class OrderItemServiceImplementation implements OrderItemService {
     public ResponseEntity<Set<OrderItemRecord>> getAllOrderItemsByOrderId(Long userId, Long id) throws OrderException {
         logger.info("Fetching all order items for order ID: {} and user ID: {}", id, userId);
 
-        OrderEntity order = orderRepository.findById(id)
+        OrderEntity order = orderRepository.findByIdAndSagaStatus(id, SagaStatusEnum.CONFIRMED)
                 .orElseThrow(() -> {
                     logger.error("Order not found with ID: {}", id);
                     return new OrderException(Constants.ORDER_NOT_FOUND, HttpStatus.NOT_FOUND);
                 });
 
-        orderService.validateOrderOwner(userId, id);
+        orderService.validateOrderOwner(userId, order.getUserId());
 
         Set<OrderItemRecord> orderItemSet = order.getOrderItemList().stream()
                 .map(orderItem -> new OrderItemRecord(orderItem.getId(), orderItem.getProductId(), orderItem.getQuantity()))
@@ -68,12 +81,16 @@ public class OrderItemServiceImplementation implements OrderItemService {
         return new ResponseEntity<>(orderItemSet, HttpStatus.OK);
     }
 
-    @Transactional(rollbackFor = {Exception.class})
+    /**
+     * Reserves the product under the order before the item is written, without holding a transaction across the call
+     * to product-service. If the order changed meanwhile so that the item can no longer be added, the reservation is
+     * given back.
+     */
     @Override
     public ResponseEntity<OrderItemRecord> addOrderItem(Long userId, Long orderId, ProductQuantityRecord productQuantityRecord) throws OrderException, OrderItemException {
         logger.info("Adding item to order ID: {} for user ID: {}", orderId, userId);
 
-        OrderEntity order = orderRepository.findById(orderId)
+        OrderEntity order = orderRepository.findByIdAndSagaStatus(orderId, SagaStatusEnum.CONFIRMED)
                 .orElseThrow(() -> {
                     logger.error("Order not found with ID: {}", orderId);
                     return new OrderException(Constants.ORDER_NOT_FOUND, HttpStatus.NOT_FOUND);
@@ -88,37 +105,61 @@ public class OrderItemServiceImplementation implements OrderItemService {
             throw new OrderItemException(Constants.INV_QUANTITY);
         }
 
-        List<ProductQuantityRecord> auxList = List.of(productQuantityRecord);
-        HashMap<Long, Integer> existentProductMap = productClientService.getExistentProducts(auxList);
-
-        if (existentProductMap.containsKey(productQuantityRecord.id())) {
-            Integer realQuantity = existentProductMap.get(productQuantityRecord.id());
+        if (!productIdFilterService.mightExist(productQuantityRecord.id())) {
+            logger.warn("Product not found with ID: {}", productQuantityRecord.id());
+            throw new OrderException(Constants.PRODUCT_NOT_FOUND, HttpStatus.NOT_FOUND);
+        }
 
-            if (realQuantity >= productQuantityRecord.quantity()) {
-                OrderItem orderItem = new OrderItem(productQuantityRecord.id(), productQuantityRecord.quantity(), order);
-                List<OrderItem> orderItemList = List.of(orderItem);
+        if (stockSnapshotService.lacksStock(productQuantityRecord.id(), productQuantityRecord.quantity())) {
+            logger.warn("Insufficient stock for product ID: {}", productQuantityRecord.id());
+            throw new OrderException(Constants.NEGATIVE_STOCK, HttpStatus.NOT_FOUND);
+        }
 
-                try {
-                    productClientService.updateProducts(orderItemList, -1);
-                } catch (ProductServiceException e) {
-                    logger.error("Error updating products: {}", e.getMessage());
-                    throw new OrderException(e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
-                }
+        List<ProductQuantityRecord> auxList = List.of(productQuantityRecord);
+        ReservationStatusEnum reservation;
 
-                saveOrderItem(orderItem);
-                order.addOrderItem(orderItem);
-                orderRepository.save(order);
+        try {
+            reservation = productClientService.reserveProducts(order.getId(), auxList).get(productQuantityRecord.id());
+        } catch (ProductServiceException e) {
+            logger.error("Error updating products: {}", e.getMessage());
+            throw new OrderException(e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
+        }
 
-                logger.info("Successfully added item {} to order {}", productQuantityRecord.id(), orderId);
-                return new ResponseEntity<>(new OrderItemRecord(order.getId(), orderItem.getProductId(), orderItem.getQuantity()), HttpStatus.CREATED);
-            } else {
-                logger.warn("Insufficient stock for product ID: {}", productQuantityRecord.id());
-                throw new OrderException(Constants.NEGATIVE_STOCK, HttpStatus.NOT_FOUND);
-            }
-        } else {
+        if (reservation == null || reservation == ReservationStatusEnum.NOT_FOUND) {
+            productIdFilterService.recordNotFound(productQuantityRecord.id());
             logger.warn("Product not found with ID: {}", productQuantityRecord.id());
             throw new OrderException(Constants.PRODUCT_NOT_FOUND, HttpStatus.NOT_FOUND);
         }
+
+        if (reservation == ReservationStatusEnum.NO_STOCK) {
+            logger.warn("Insufficient stock for product ID: {}", productQuantityRecord.id());
+            throw new OrderException(Constants.NEGATIVE_STOCK, HttpStatus.NOT_FOUND);
+        }
+
+        OrderItem orderItem = transactionTemplate.execute(status -> saveNewOrderItem(orderId, productQuantityRecord));
+        if (orderItem == null) {
+            logger.warn("Order {} changed while item {} was being added", orderId, productQuantityRecord.id());
+            releaseDownTo(orderId, productQuantityRecord.id(), currentQuantity(orderId, productQuantityRecord.id()));
+            throw new OrderException(Constants.ORDER_CHANGED, HttpStatus.CONFLICT);
+        }
+
+        logger.info("Successfully added item {} to order {}", productQuantityRecord.id(), orderId);
+        return new ResponseEntity<>(new OrderItemRecord(orderId, orderItem.getProductId(), orderItem.getQuantity()), HttpStatus.CREATED);
+    }
+
+    private OrderItem saveNewOrderItem(Long orderId, ProductQuantityRecord productQuantityRecord) {
+        OrderEntity order = orderRepository.findByIdAndSagaStatus(orderId, SagaStatusEnum.CONFIRMED).orElse(null);
+        if (order == null || order.getStatus() == OrderStatusEnum.COMPLETED || order.getOrderItemList().stream()
+                .anyMatch(orderItem -> Objects.equals(orderItem.getProductId(), productQuantityRecord.id()))) {
+            return null;
+        }
+
+        OrderItem orderItem = new OrderItem(productQuantityRecord.id(), productQuantityRecord.quantity(), order);
+
+        saveOrderItem(orderItem);
+        order.addOrderItem(orderItem);
+        orderRepository.save(order);
+        return orderItem;
     }
 
     private void validateOrderItem(Long userId, Long orderId, Long orderItemProductId) throws OrderException {
@@ -134,7 +175,11 @@ public class OrderItemServiceImplementation implements OrderItemService {
         }
     }
 
-    @Transactional(rollbackFor = {Exception.class})
+    /**
+     * Increases are reserved before the new quantity is written and decreases are released under the order once it
+     * is, so product-service's reservations for the order never fall below what the order holds. No transaction is
+     * held across the calls to product-service.
+     */
     @Override
     public ResponseEntity<OrderItemRecord> updateOrderItemQuantity(Long userId, Long orderItemId, Integer quantity) throws OrderItemException, OrderException {
         logger.info("Updating quantity for order item ID: {}", orderItemId);
@@ -145,39 +190,62 @@ public class OrderItemServiceImplementation implements OrderItemService {
                     return new OrderItemException(Constants.ORDER_ITEM_NOT_FOUND, HttpStatus.NOT_FOUND);
                 });
 
+        Long orderId = orderItem.getOrderEntity().getId();
         orderService.validateOrderOwner(userId, orderItem.getOrderEntity().getUserId());
-        validOrderStatus(orderItem.getOrderEntity().getId());
+        validOrderStatus(orderId);
 
-        int difference = orderItem.getQuantity() - quantity;
+        int previousQuantity = orderItem.getQuantity();
+        int difference = previousQuantity - quantity;
 
-        if (quantity > 0 && !Objects.equals(orderItem.getQuantity(), quantity)) {
-            HashMap<Long, Integer> existentProduct = productClientService.getExistentProducts(List.of(new ProductQuantityRecord(orderItem.getProductId(), quantity)));
+        if (quantity <= 0 || difference == 0) {
+            logger.error("Invalid quantity: {}", quantity);
+            throw new OrderException(Constants.INV_QUANTITY, HttpStatus.NOT_ACCEPTABLE);
+        }
 
+        if (difference < 0) {
             try {
-                if (difference > 0) {
-                    productClientService.updateProducts(List.of(new OrderItem(orderItem.getProductId(), difference, null)), 1);
-                } else {
-                    if (existentProduct.get(orderItem.getProductId()) >= -1 * difference) {
-                        productClientService.updateProducts(List.of(new OrderItem(orderItem.getProductId(), difference, null)), 1);
-                    } else {
-                        logger.warn("Insufficient stock for product ID: {}", orderItem.getProductId());
-                        throw new OrderException(Constants.NEGATIVE_STOCK, HttpStatus.NOT_ACCEPTABLE);
-                    }
+                ReservationStatusEnum reservation = productClientService
+                        .reserveProducts(orderId, List.of(new ProductQuantityRecord(orderItem.getProductId(), -1 * difference)))
+                        .get(orderItem.getProductId());
+
+                if (reservation != ReservationStatusEnum.RESERVED) {
+                    logger.warn("Insufficient stock for product ID: {}", orderItem.getProductId());
+                    throw new OrderException(Constants.NEGATIVE_STOCK, HttpStatus.NOT_ACCEPTABLE);
                 }
             } catch (ProductServiceException e) {
                 logger.error("Error updating products: {}", e.getMessage());
                 throw new OrderException(e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
             }
+        }
 
-            orderItem.setQuantity(quantity);
-            orderItem = orderItemRepository.save(orderItem);
+        OrderItem updatedOrderItem = transactionTemplate.execute(status -> saveQuantity(orderItemId, previousQuantity, quantity));
+        if (updatedOrderItem == null) {
+            logger.warn("Order item {} changed while its quantity was being updated", orderItemId);
+            if (difference < 0) {
+                releaseDownTo(orderId, orderItem.getProductId(), currentQuantity(orderId, orderItem.getProductId()));
+            }
+            throw new OrderException(Constants.ORDER_CHANGED, HttpStatus.CONFLICT);
+        }
 
-            logger.info("Successfully updated order item ID: {} to quantity {}", orderItemId, quantity);
-            return new ResponseEntity<>(new OrderItemRecord(orderItem.getId(), orderItem.getProductId(), orderItem.getQuantity()), HttpStatus.CREATED);
-        } else {
-            logger.error("Invalid quantity: {}", quantity);
-            throw new OrderException(Constants.INV_QUANTITY, HttpStatus.NOT_ACCEPTABLE);
+        if (difference > 0) {
+            releaseDownTo(orderId, orderItem.getProductId(), quantity);
+        }
+
+        logger.info("Successfully updated order item ID: {} to quantity {}", orderItemId, quantity);
+        return new ResponseEntity<>(new OrderItemRecord(updatedOrderItem.getId(), updatedOrderItem.getProductId(), updatedOrderItem.getQuantity()), HttpStatus.CREATED);
+    }
+
+    // Writes the new quantity only if nobody changed the item, or completed its order, since it was read
+    private OrderItem saveQuantity(Long orderItemId, int previousQuantity, int quantity) {
+        OrderItem orderItem = orderItemRepository.findById(orderItemId).orElse(null);
+        if (orderItem == null || orderItem.getQuantity() != previousQuantity
+                || orderItem.getOrderEntity().getSagaStatus() != SagaStatusEnum.CONFIRMED
+                || orderItem.getOrderEntity().getStatus() == OrderStatusEnum.COMPLETED) {
+            return null;
         }
+
+        orderItem.setQuantity(quantity);
+        return orderItemRepository.save(orderItem);
     }
 
     @Override
@@ -193,19 +261,39 @@ public class OrderItemServiceImplementation implements OrderItemService {
         orderService.validateOrderOwner(userId, orderItem.getOrderEntity().getUserId());
         validOrderStatus(orderItem.getOrderEntity().getId());
 
-        productClientService.updateProducts(List.of(orderItem), 1);
         orderItemRepository.delete(orderItem);
+        releaseDownTo(orderItem.getOrderEntity().getId(), orderItem.getProductId(), 0);
 
         logger.info("Successfully deleted order item ID: {}", orderItemId);
         return new ResponseEntity<>(HttpStatus.NO_CONTENT);
     }
 
+    private int currentQuantity(Long orderId, Long productId) {
+        return orderItemRepository.findByOrderEntityId(orderId).stream()
+                .filter(orderItem -> Objects.equals(orderItem.getProductId(), productId))
+                .mapToInt(OrderItem::getQuantity)
+                .sum();
+    }
+
+    /*
+     * The item is already written, so a failed release only leaves stock reserved for the order; it is logged rather
+     * than failing a request whose change went through.
+     */
+    private void releaseDownTo(Long orderId, Long productId, int quantity) {
+        try {
+            productClientService.releaseReservationsDownTo(orderId, List.of(new ProductQuantityRecord(productId, quantity)));
+        } catch (ProductServiceException e) {
+            logger.error("Could not release stock of product {} for order {} down to {}: {}", productId, orderId, quantity, e.getMessage());
+        }
+    }
+
 
     @Override
     public boolean existsOrderItem(Long id) {
         return orderItemRepository.existsById(id);
     }
 
+    // getOrderById only finds confirmed orders, so items of orders whose saga is still running are rejected too
     private void validOrderStatus(Long id) throws OrderException {
         OrderDTO order = orderService.getOrderById(id).getBody();
 
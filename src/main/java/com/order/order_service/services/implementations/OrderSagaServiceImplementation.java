@@ -0,0 +1,140 @@
+package com.order.order_service.services.implementations;
+
+import com.order.order_service.dtos.ProductQuantityRecord;
+import com.order.order_service.enums.SagaStatusEnum;
+import com.order.order_service.repositories.OrderItemRepository;
+import com.order.order_service.repositories.OrderRepository;
+import com.order.order_service.services.OrderSagaService;
+import com.order.order_service.services.ProductClientService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Drives the order-creation saga from the state persisted on the order. Every state change is its own short
+ * transaction; calls to product-service always run outside of one.
+ */
+@Service
+public class OrderSagaServiceImplementation implements OrderSagaService {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderSagaServiceImplementation.class);
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    @Autowired
+    private ProductClientService productClientService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${order.saga.pending-timeout-ms:300000}")
+    private long pendingTimeoutMs;
+
+    @Value("${order.saga.compensation-retry-delay-ms:30000}")
+    private long compensationRetryDelayMs;
+
+    @Value("${order.saga.compensation-lease-ms:120000}")
+    private long compensationLeaseMs;
+
+    @Value("${order.saga.batch-size:100}")
+    private int batchSize;
+
+    @Override
+    public boolean confirmOrder(Long orderId) {
+        return transition(orderId, SagaStatusEnum.PENDING_STOCK, SagaStatusEnum.CONFIRMED, false);
+    }
+
+    @Override
+    public void compensateOrder(Long orderId) {
+        if (transition(orderId, SagaStatusEnum.PENDING_STOCK, SagaStatusEnum.COMPENSATING, true)) {
+            runCompensation(orderId);
+        }
+    }
+
+    /**
+     * Orders left in PENDING_STOCK past the timeout belong to a request that never finished (crash, lost
+     * connection), so they are compensated as well. COMPENSATING orders are retried once the retry delay passed
+     * since the last failed attempt.
+     * <p>
+     * Whoever moves an order to COMPENSATING holds a lease on it for order.saga.compensation-lease-ms, which must
+     * outlast the slowest release including its retries; no runner claims a leased order. Only orders touched
+     * strictly before this run's {@code now} are claimed, so a run never picks up an order it claimed itself.
+     */
+    @Override
+    @Scheduled(fixedDelayString = "${order.saga.poll-interval-ms:30000}")
+    public void processPendingSagas() {
+        LocalDateTime now = LocalDateTime.now();
+
+        LocalDateTime pendingBefore = now.minusNanos(pendingTimeoutMs * 1_000_000);
+        for (Long orderId : orderRepository.findSagaIds(SagaStatusEnum.PENDING_STOCK, pendingBefore, Limit.of(batchSize))) {
+            if (claim(orderId, SagaStatusEnum.PENDING_STOCK, pendingBefore, now)) {
+                logger.warn("Order {} was left pending stock confirmation, compensating it", orderId);
+                runCompensation(orderId);
+            }
+        }
+
+        LocalDateTime retryBefore = now.minusNanos(compensationRetryDelayMs * 1_000_000);
+        for (Long orderId : orderRepository.findSagaIds(SagaStatusEnum.COMPENSATING, retryBefore, Limit.of(batchSize))) {
+            if (claim(orderId, SagaStatusEnum.COMPENSATING, retryBefore, now)) {
+                runCompensation(orderId);
+            }
+        }
+    }
+
+    /**
+     * Releases the lines stored with the order under its id. Product-service only gives back what it actually
+     * reserved for the order, so lines whose reservation failed or never arrived are not restocked, and a retry after
+     * a lost response releases nothing twice. The order is deleted only once the release was acknowledged.
+     */
+    private void runCompensation(Long orderId) {
+        logger.info("Compensating order creation for order id: {}", orderId);
+        List<ProductQuantityRecord> orderLines = orderItemRepository.findByOrderEntityId(orderId).stream()
+                .map(orderItem -> new ProductQuantityRecord(orderItem.getProductId(), orderItem.getQuantity()))
+                .toList();
+
+        try {
+            if (!orderLines.isEmpty()) {
+                productClientService.releaseReservations(orderId, orderLines);
+            }
+        } catch (Exception e) {
+            logger.error("Error compensating product update for order {}, it will be retried: {}", orderId, e.getMessage());
+            transactionTemplate.executeWithoutResult(status ->
+                    orderRepository.releaseSagaLease(orderId, SagaStatusEnum.COMPENSATING, LocalDateTime.now()));
+            return;
+        }
+
+        transactionTemplate.executeWithoutResult(status -> orderRepository.findById(orderId)
+                .filter(order -> order.getSagaStatus() == SagaStatusEnum.COMPENSATING)
+                .ifPresent(orderRepository::delete));
+        logger.info("Order {} compensated and deleted", orderId);
+    }
+
+    private boolean transition(Long orderId, SagaStatusEnum from, SagaStatusEnum to, boolean lease) {
+        LocalDateTime now = LocalDateTime.now();
+        Integer updated = transactionTemplate.execute(status ->
+                orderRepository.transitionSaga(orderId, from, to, now, lease ? leaseUntil(now) : null));
+        return updated != null && updated > 0;
+    }
+
+    private boolean claim(Long orderId, SagaStatusEnum from, LocalDateTime before, LocalDateTime now) {
+        Integer updated = transactionTemplate.execute(status ->
+                orderRepository.claimStaleSaga(orderId, from, SagaStatusEnum.COMPENSATING, before, now, leaseUntil(now)));
+        return updated != null && updated > 0;
+    }
+
+    private LocalDateTime leaseUntil(LocalDateTime now) {
+        return now.plusNanos(compensationLeaseMs * 1_000_000);
+    }
+}
@@ -1,8 +1,11 @@
 package com.order.order_service.services.implementations;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.order.order_service.dtos.*;
 import com.order.order_service.enums.OrderStatusEnum;
 import com.order.order_service.enums.ProductErrorEnum;
+import com.order.order_service.enums.ReservationStatusEnum;
+import com.order.order_service.enums.SagaStatusEnum;
 import com.order.order_service.exceptions.OrderException;
 import com.order.order_service.exceptions.OrderNotFoundException;
 import com.order.order_service.exceptions.ProductServiceException;
@@ -10,22 +13,31 @@ import com.order.order_service.models.OrderEntity;
 import com.order.order_service.models.OrderItem;
 import com.order.order_service.repositories.OrderItemRepository;
 import com.order.order_service.repositories.OrderRepository;
+import com.order.order_service.services.OrderSagaService;
 import com.order.order_service.services.OrderService;
 import com.order.order_service.services.OutboxMessageService;
 import com.order.order_service.services.ProductClientService;
+import com.order.order_service.services.ProductIdFilterService;
+import com.order.order_service.services.StockSnapshotService;
+import com.order.order_service.services.UserClientService;
 import com.order.order_service.utils.Constants;
-import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
+import com.order.order_service.utils.ReservationResults;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
-import org.springframework.web.client.*;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.*;
+import java.util.function.LongFunction;
 import java.util.stream.Collectors;
 
 @Service
@@ -39,20 +51,49 @@ public class OrderServiceImplementation implements OrderService {
     @Autowired
     private OrderItemRepository orderItemRepository;
 
-    @Autowired
-    private RestTemplate restTemplate;
-
     @Autowired
     private OutboxMessageService outboxMessageService;
 
     @Autowired
     private ProductClientService productClientService;
 
-    @Value("${USER_SERVICE_URL}")
-    private String USER_SERVICE_URL;
+    @Autowired
+    private UserClientService userClientService;
+
+    @Autowired
+    private OrderSagaService orderSagaService;
+
+    @Autowired
+    private ProductIdFilterService productIdFilterService;
+
+    @Autowired
+    private StockSnapshotService stockSnapshotService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
 
-    @Value("${PRODUCT_SERVICE_URL}")
-    private String PRODUCT_SERVICE_URL;
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${order.page.default-size:50}")
+    private int defaultPageSize;
+
+    @Value("${order.page.max-size:500}")
+    private int maxPageSize;
+
+    @Value("${order.stream.chunk-size:500}")
+    private int streamChunkSize;
+
+    private TransactionTemplate streamChunkTransaction;
+
+    @PostConstruct
+    public void initStreamChunkTransaction() {
+        streamChunkTransaction = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        streamChunkTransaction.setReadOnly(true);
+    }
 
     @Override
     public void saveOrder(OrderEntity orderEntity) {
@@ -63,7 +104,7 @@ public class OrderServiceImplementation implements OrderService {
     @Override
     public ResponseEntity<Set<OrderDTO>> getAllOrders() {
         logger.info("Fetching all orders...");
-        Set<OrderDTO> orders = orderRepository.findAll()
+        Set<OrderDTO> orders = orderRepository.findBySagaStatus(SagaStatusEnum.CONFIRMED)
                 .stream()
                 .map(OrderDTO::new)
                 .collect(Collectors.toSet());
@@ -74,7 +115,7 @@ public class OrderServiceImplementation implements OrderService {
     @Override
     public ResponseEntity<Set<OrderDTO>> getAllOrdersByUserId(Long id) {
         logger.info("Fetching orders for user ID: {}", id);
-        Set<OrderDTO> orders = orderRepository.findByUserId(id)
+        Set<OrderDTO> orders = orderRepository.findByUserIdAndSagaStatus(id, SagaStatusEnum.CONFIRMED)
                 .stream()
                 .map(OrderDTO::new)
                 .collect(Collectors.toSet());
@@ -82,16 +123,98 @@ public class OrderServiceImplementation implements OrderService {
         return new ResponseEntity<>(orders, HttpStatus.OK);
     }
 
+    @Override
+    public ResponseEntity<OrderPageRecord> getOrdersPage(Long afterId, Integer size) throws OrderException {
+        int pageSize = resolvePageSize(size);
+        logger.info("Fetching {} orders after ID: {}", pageSize, afterId);
+        return toPage(orderRepository.findPageIdsAfter(SagaStatusEnum.CONFIRMED, afterId != null ? afterId : 0L, Limit.of(pageSize + 1)), pageSize);
+    }
+
+    @Override
+    public ResponseEntity<OrderPageRecord> getOrdersPageByUserId(Long userId, Long afterId, Integer size) throws OrderException {
+        int pageSize = resolvePageSize(size);
+        logger.info("Fetching {} orders for user ID: {} after ID: {}", pageSize, userId, afterId);
+        return toPage(orderRepository.findPageIdsByUserIdAfter(userId, SagaStatusEnum.CONFIRMED, afterId != null ? afterId : 0L, Limit.of(pageSize + 1)), pageSize);
+    }
+
+    private int resolvePageSize(Integer size) throws OrderException {
+        if (size == null) {
+            return defaultPageSize;
+        }
+        if (size < 1) {
+            throw new OrderException(Constants.INV_PAGE_SIZE, HttpStatus.BAD_REQUEST);
+        }
+        return Math.min(size, maxPageSize);
+    }
+
+    private ResponseEntity<OrderPageRecord> toPage(List<Long> orderIds, int pageSize) {
+        // One extra id is read to know whether another page exists without a count query
+        boolean hasMore = orderIds.size() > pageSize;
+        List<Long> pageIds = hasMore ? orderIds.subList(0, pageSize) : orderIds;
+        List<OrderDTO> page = pageIds.isEmpty() ? List.of() : orderRepository.findWithItemsByIdIn(pageIds)
+                .stream()
+                .map(OrderDTO::new)
+                .toList();
+        Long nextCursor = hasMore ? pageIds.get(pageIds.size() - 1) : null;
+        return new ResponseEntity<>(new OrderPageRecord(page, nextCursor), HttpStatus.OK);
+    }
+
+    @Override
+    public void streamAllOrders(OutputStream outputStream) throws IOException {
+        logger.info("Streaming all orders...");
+        writeNdjson(afterId -> orderRepository.findPageIdsAfter(SagaStatusEnum.CONFIRMED, afterId, Limit.of(streamChunkSize + 1)), outputStream);
+    }
+
+    @Override
+    public void streamOrdersByUserId(Long userId, OutputStream outputStream) throws IOException {
+        logger.info("Streaming orders for user ID: {}", userId);
+        writeNdjson(afterId -> orderRepository.findPageIdsByUserIdAfter(userId, SagaStatusEnum.CONFIRMED, afterId, Limit.of(streamChunkSize + 1)), outputStream);
+    }
+
+    /**
+     * Writes the orders in id order, one keyset chunk at a time. Each chunk is read in its own short read-only
+     * transaction and written once its connection is back in the pool, so a slow client never keeps a connection
+     * checked out. Orders created or deleted during the stream may or may not be included, as when paging.
+     */
+    private void writeNdjson(LongFunction<List<Long>> chunkIdsAfter, OutputStream outputStream) throws IOException {
+        int written = 0;
+        Long cursor = 0L;
+        while (cursor != null) {
+            long afterId = cursor;
+            OrderPageRecord chunk = streamChunkTransaction.execute(status -> {
+                OrderPageRecord orders = toPage(chunkIdsAfter.apply(afterId), streamChunkSize).getBody();
+                // The DTOs hold everything written, so the entities read so far can go
+                entityManager.clear();
+                return orders;
+            });
+
+            for (OrderDTO order : chunk.orders()) {
+                outputStream.write(objectMapper.writeValueAsBytes(order));
+                outputStream.write('\n');
+            }
+            written += chunk.orders().size();
+            cursor = chunk.nextCursor();
+        }
+        outputStream.flush();
+        logger.info("Streamed {} orders", written);
+    }
+
     @Override
     public ResponseEntity<OrderDTO> getOrderById(Long id) throws OrderException {
         logger.info("Fetching order with ID: {}", id);
-        OrderEntity order = orderRepository.findById(id)
+        return new ResponseEntity<>(new OrderDTO(findConfirmedOrder(id)), HttpStatus.OK);
+    }
+
+    /**
+     * Orders whose stock is still being reserved or released are treated as missing, so that they can be neither
+     * read nor changed before their saga confirms them.
+     */
+    private OrderEntity findConfirmedOrder(Long id) throws OrderException {
+        return orderRepository.findByIdAndSagaStatus(id, SagaStatusEnum.CONFIRMED)
                 .orElseThrow(() -> {
                     logger.error(Constants.ORDER_NOT_FOUND_WITH_ID + "{}", id);
                     return new OrderException(Constants.ORDER_NOT_FOUND, HttpStatus.NOT_FOUND);
                 });
-
-        return new ResponseEntity<>(new OrderDTO(order), HttpStatus.OK);
     }
 
     @Override
@@ -102,129 +225,166 @@ public class OrderServiceImplementation implements OrderService {
         return new ResponseEntity<>(order, HttpStatus.OK);
     }
 
-    private OrderEntityItemListWrapper createOrderEntity(Long userId, HashMap<Long, Integer> existentProductMap, List<ProductQuantityRecord> wantedProducts) throws OrderException {
+    /**
+     * Stores the lines about to be reserved together with the PENDING_STOCK order, so that whoever compensates the
+     * order later knows exactly which reservations to release, even if this request never gets a response.
+     */
+    private OrderEntity createPendingOrder(Long userId, List<ProductQuantityRecord> productsToReserve) {
         OrderEntity order = new OrderEntity(null, userId, OrderStatusEnum.PENDING);
+        order.setSagaStatus(SagaStatusEnum.PENDING_STOCK);
+        for (ProductQuantityRecord productToReserve : productsToReserve) {
+            order.addOrderItemList(new OrderItem(productToReserve.id(), productToReserve.quantity(), order));
+        }
         saveOrder(order);
-
-        OrderItemListWrapper orderItemListWrapper = setOrderItemList(existentProductMap, wantedProducts, order);
-
-        saveOrder(order);
-
-        OrderEntityItemListWrapper orderEntityItemListWrapper = new OrderEntityItemListWrapper();
-        orderEntityItemListWrapper.setOrderEntity(order);
-        orderEntityItemListWrapper.setOrderItemListWrapper(orderItemListWrapper);
-
-        return orderEntityItemListWrapper;
+        return order;
     }
 
+    /**
+     * Runs as a saga instead of one transaction: the order and its requested lines are stored as PENDING_STOCK, stock
+     * is reserved in product-service under the order id without holding a connection, and a second short
+     * transaction drops the lines that were not reserved and confirms it. On failure the order moves to
+     * COMPENSATING and OrderSagaService keeps releasing its lines until product-service acknowledges it.
+     */
     @Override
-    @Transactional(rollbackFor = {Exception.class})
-    public ResponseEntity<OrderCreatedRecord> createOrder(String email, NewOrderRecord newOrder) throws OrderException {
+    public ResponseEntity<OrderCreatedRecord> createOrder(Long tokenUserId, String email, NewOrderRecord newOrder) throws OrderException {
         logger.info("Creating order for user with email: {}", email);
-        Long userId = getUserIdFromEmail(email);
-
-        HashMap<Long,Integer> existentProductMap = productClientService.getExistentProducts(newOrder.recordList());
-
-        OrderEntityItemListWrapper orderEntityItemListWrapper = createOrderEntity(userId, existentProductMap, newOrder.recordList());
+        Long userId = tokenUserId != null ? tokenUserId : getUserIdFromEmail(email);
+
+        // Lines ruled out locally never reach product-service: unknown ids end up as NOT_FOUND in setOrderItemList,
+        // lines the stock snapshot already shows as short are answered as NO_STOCK
+        ReservationResults reservations = new ReservationResults(newOrder.recordList().size());
+        List<ProductQuantityRecord> productsToReserve = new ArrayList<>();
+        for (ProductQuantityRecord wantedProduct : newOrder.recordList()) {
+            if (!productIdFilterService.mightExist(wantedProduct.id())) {
+                continue;
+            }
+            if (stockSnapshotService.lacksStock(wantedProduct.id(), wantedProduct.quantity())) {
+                reservations.put(wantedProduct.id(), ReservationStatusEnum.NO_STOCK);
+            } else {
+                productsToReserve.add(wantedProduct);
+            }
+        }
 
-        OrderEntity order = orderEntityItemListWrapper.getOrderEntity();
-        List<OrderItem> orderItemList = orderEntityItemListWrapper.getOrderItemListWrapper().getOrderItemList();
-        List<ErrorProductRecord> orderItemsError = orderEntityItemListWrapper.getOrderItemListWrapper().getErrorProductRecordList();
+        OrderEntity order = transactionTemplate.execute(status -> createPendingOrder(userId, productsToReserve));
 
         try {
-            productClientService.updateProducts(orderItemList,-1);
+            if (!productsToReserve.isEmpty()) {
+                reservations.putAll(productClientService.reserveProducts(order.getId(), productsToReserve));
+            }
+            reservations.forEach((productId, status) -> {
+                if (status == ReservationStatusEnum.NOT_FOUND) {
+                    productIdFilterService.recordNotFound(productId);
+                }
+            });
         } catch(ProductServiceException e){
             logger.error(Constants.UPDATE_STOCK_ERROR + "{}", e.getMessage());
 
-            compensateOrderCreation(order);
+            // The reservation may have been applied even though its response was lost; releasing by order id
+            // gives back exactly what was reserved, if anything
+            orderSagaService.compensateOrder(order.getId());
             throw new OrderException(e.getMessage(),HttpStatus.INTERNAL_SERVER_ERROR);
         }
 
+        OrderItemListWrapper orderItemListWrapper = transactionTemplate.execute(status -> {
+            if (!orderSagaService.confirmOrder(order.getId())) {
+                return null;
+            }
+            return setOrderItemList(reservations, newOrder.recordList(), order);
+        });
+
+        if (orderItemListWrapper == null) {
+            // The saga recovery claimed the order first; it releases the order's reservations from its stored lines
+            logger.error("Order {} was compensated before its stock reservation was confirmed", order.getId());
+            throw new OrderException(Constants.ORDER_CANCELLED, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+
         OrderDTO orderDTO = new OrderDTO(order);
 
         logger.info("Order created successfully: {}", order.getId());
-        return new ResponseEntity<>(new OrderCreatedRecord(orderDTO, orderItemsError), HttpStatus.CREATED);
+        return new ResponseEntity<>(new OrderCreatedRecord(orderDTO, orderItemListWrapper.getErrorProductRecordList()), HttpStatus.CREATED);
 
     }
 
-
+    /**
+     * Keeps the order's pending lines that product-service reserved, deletes the others and reports every wanted
+     * product that didn't make it into the order.
+     */
     @Override
-    public OrderItemListWrapper setOrderItemList(HashMap<Long, Integer> existentProducts, List<ProductQuantityRecord> wantedProducts, OrderEntity order) {
+    public OrderItemListWrapper setOrderItemList(ReservationResults reservations, List<ProductQuantityRecord> wantedProducts, OrderEntity order) {
         logger.info("Setting order items for order {}", order.getId());
 
         List<OrderItem> orderItemList = new ArrayList<>();
+        List<OrderItem> unreservedItemList = new ArrayList<>();
         List<ErrorProductRecord> errorProductList = new ArrayList<>();
 
+        for (OrderItem orderItem : order.getOrderItemList()) {
+            if (reservations.isReserved(orderItem.getProductId())) {
+                orderItemList.add(orderItem);
+            } else {
+                unreservedItemList.add(orderItem);
+            }
+        }
+
         for (ProductQuantityRecord wantedProduct : wantedProducts) {
-            if (existentProducts.containsKey(wantedProduct.id())) {
-                Integer realQuantity = existentProducts.get(wantedProduct.id());
-                if (realQuantity >= wantedProduct.quantity()) {
-                    OrderItem orderItem = new OrderItem(wantedProduct.id(), wantedProduct.quantity(), order);
-                    orderItemList.add(orderItem);
-                } else {
-                    errorProductList.add(new ErrorProductRecord(wantedProduct.id(), ProductErrorEnum.NO_STOCK));
-                }
+            ReservationStatusEnum status = reservations.get(wantedProduct.id());
+
+            if (status == ReservationStatusEnum.RESERVED) {
+                continue;
+            }
+            if (status == ReservationStatusEnum.NO_STOCK) {
+                errorProductList.add(new ErrorProductRecord(wantedProduct.id(), ProductErrorEnum.NO_STOCK));
             } else {
                 errorProductList.add(new ErrorProductRecord(wantedProduct.id(), ProductErrorEnum.NOT_FOUND));
             }
         }
 
-        if (!orderItemList.isEmpty()) {
-            orderItemList = orderItemRepository.saveAll(orderItemList);
+        if (!unreservedItemList.isEmpty()) {
+            orderItemRepository.deleteAllInBatch(unreservedItemList);
+            order.getOrderItemList().removeAll(unreservedItemList);
         }
 
         return new OrderItemListWrapper(orderItemList, errorProductList);
     }
 
 
-    @Transactional(rollbackFor = Exception.class)
-    public void compensateOrderCreation(OrderEntity order) {
-        logger.info("Compensating order creation for order id: {}", order.getId());
-
-        try {
-            productClientService.updateProducts(order.getOrderItemList(), +1);
-            deleteOrder(order.getId());
-        } catch (ProductServiceException e) {
-            logger.error("Error compensating product update for order {}: {}", order.getId(), e.getMessage());
-        } catch (OrderNotFoundException e) {
-            throw new RuntimeException(e);
-        }
-    }
-
     @Override
     public Long getUserIdFromEmail(String email) throws OrderException {
-        try{
-            String url = USER_SERVICE_URL + "/private/email/" + email;
-
-            return restTemplate.getForObject(url, Long.class);
-        } catch (RestClientException e) {
-
-            if (e instanceof HttpStatusCodeException aux){
-                throw new OrderException(Constants.USER_NOT_FOUND, (HttpStatus) aux.getStatusCode());
-            } else {
-                throw new OrderException(Constants.COM_USR_PROD, HttpStatus.INTERNAL_SERVER_ERROR);
-            }
-        }
+        return userClientService.getUserIdFromEmail(email);
     }
 
+    /**
+     * Product details for the PDF come from product-service before the write transaction opens, so no connection is
+     * held while they are fetched. The PDF event is only written with every product of the order; if some details
+     * are missing, or the order's lines changed meanwhile, the status stays as it was and the caller can try again.
+     */
     @Override
-    @Transactional(rollbackFor = Exception.class)
     public ResponseEntity<OrderDTO> changeStatus(Long userId, String userMail, Long orderId, OrderStatusEnum orderStatus) throws OrderException {
         logger.info("Changing status of order {} to {}", orderId, orderStatus);
-        OrderEntity order = orderRepository.findById(orderId)
-                .orElseThrow(() -> {
-                    logger.error(Constants.ORDER_NOT_FOUND_WITH_ID + "{}", orderId);
-                    return new OrderException(Constants.ORDER_NOT_FOUND, HttpStatus.NOT_FOUND);
-                });
+        OrderEntity order = findConfirmedOrder(orderId);
 
         validateOrderOwner(userId,order.getUserId());
 
-        order.setStatus(orderStatus);
+        OrderToPdfDTO orderToPdfDTO = orderStatus == OrderStatusEnum.COMPLETED ? sendDataToGeneratePdf(order, userMail) : null;
+
+        OrderEntity updatedOrder = transactionTemplate.execute(status -> updateStatus(orderId, orderStatus, orderToPdfDTO));
+        if (updatedOrder == null) {
+            logger.warn("Order {} changed while its status was being updated", orderId);
+            throw new OrderException(Constants.ORDER_CHANGED, HttpStatus.CONFLICT);
+        }
+
+        return new ResponseEntity<>(new OrderDTO(updatedOrder), HttpStatus.OK);
+    }
+
+    private OrderEntity updateStatus(Long orderId, OrderStatusEnum orderStatus, OrderToPdfDTO orderToPdfDTO) {
+        OrderEntity order = orderRepository.findByIdAndSagaStatus(orderId, SagaStatusEnum.CONFIRMED).orElse(null);
+        if (order == null || (orderToPdfDTO != null && !hasSameLines(order, orderToPdfDTO))) {
+            return null;
+        }
 
+        order.setStatus(orderStatus);
         order = orderRepository.save(order);
 
-        if (order.getStatus() == OrderStatusEnum.COMPLETED){
-            OrderToPdfDTO orderToPdfDTO = sendDataToGeneratePdf(order, userMail);
+        if (orderToPdfDTO != null) {
             outboxMessageService.saveOutboxMessage(
                     orderToPdfDTO,
                     "OrderPdfEvent",
@@ -233,24 +393,34 @@ public class OrderServiceImplementation implements OrderService {
             );
             logger.info("Outbox message saved for order {}", order.getId());
         }
+        return order;
+    }
 
-        return new ResponseEntity<>(new OrderDTO(order), HttpStatus.OK);
+    private static boolean hasSameLines(OrderEntity order, OrderToPdfDTO orderToPdfDTO) {
+        Map<Long, Integer> orderLines = new HashMap<>();
+        order.getOrderItemList().forEach(item -> orderLines.put(item.getProductId(), item.getQuantity()));
+
+        Map<Long, Integer> pdfLines = new HashMap<>();
+        orderToPdfDTO.getNewProductList().forEach(product -> pdfLines.put(product.id(), product.quantity()));
+        return orderLines.equals(pdfLines);
     }
 
-    private OrderToPdfDTO sendDataToGeneratePdf(OrderEntity order, String userMail) {
+    private OrderToPdfDTO sendDataToGeneratePdf(OrderEntity order, String userMail) throws OrderException {
         logger.info("Sending data to generate PDF for order {}", order.getId());
         List<ProductRecord> listProducts = new ArrayList<>();
 
+        Map<Long, ProductRecord> products = productClientService.getProductDetails(
+                order.getOrderItemList().stream().map(OrderItem::getProductId).toList());
+
         for (OrderItem item : order.getOrderItemList()){
-            try {
-                ProductRecord product = restTemplate.getForObject(PRODUCT_SERVICE_URL + "/public/" + item.getProductId(), ProductRecord.class );
-
-                assert product != null;
-                ProductRecord productRecord = new ProductRecord(product.id(), product.name(), product.description(), product.price(), item.getQuantity());
-                listProducts.add(productRecord);
-            } catch (RestClientException e){
-                logger.warn("Failed to fetch product {} details", item.getProductId());
+            ProductRecord product = products.get(item.getProductId());
+
+            if (product == null) {
+                // A PDF missing some of the order's products would be sent as if it were complete
+                logger.error("No details for product {} of order {}, not generating the PDF", item.getProductId(), order.getId());
+                throw new OrderException(Constants.PRODUCT_DETAILS_UNAVAILABLE, HttpStatus.SERVICE_UNAVAILABLE);
             }
+            listProducts.add(new ProductRecord(product.id(), product.name(), product.description(), product.price(), item.getQuantity()));
         }
 
         return new OrderToPdfDTO(order.getId(), order.getUserId(), userMail, listProducts);
@@ -260,7 +430,7 @@ public class OrderServiceImplementation implements OrderService {
     @Override
     public ResponseEntity<String> deleteOrder(Long id) throws OrderNotFoundException {
         logger.info("Attempting to delete order with ID: {}", id);
-        orderRepository.findById(id)
+        orderRepository.findByIdAndSagaStatus(id, SagaStatusEnum.CONFIRMED)
                 .orElseThrow(() -> {
                     logger.error(Constants.ORDER_NOT_FOUND_WITH_ID + "{}", id);
                     return new OrderNotFoundException(Constants.ORDER_NOT_FOUND + id);
@@ -5,8 +5,11 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.order.order_service.models.OutboxMessage;
 import com.order.order_service.repositories.OutboxMessageRepository;
 import com.order.order_service.services.OutboxMessageService;
+import com.order.order_service.services.OutboxPublisherService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.LocalDateTime;
 
@@ -16,6 +19,9 @@ public class OutboxMessageServiceImplementation implements OutboxMessageService
     @Autowired
     private OutboxMessageRepository outboxMessageRepository;
 
+    @Autowired
+    private OutboxPublisherService outboxPublisherService;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -32,7 +38,19 @@ public class OutboxMessageServiceImplementation implements OutboxMessageService
                     false,
                     0
             );
-            outboxMessageRepository.save(outboxMessage);
+            outboxMessage.setPayloadType(event.getClass().getName());
+            Long messageId = outboxMessageRepository.save(outboxMessage).getId();
+
+            if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        outboxPublisherService.dispatch(messageId);
+                    }
+                });
+            } else {
+                outboxPublisherService.dispatch(messageId);
+            }
         } catch (JsonProcessingException e) {
             throw new RuntimeException("Error serializing event payload", e);
         }
@@ -5,15 +5,35 @@ import com.order.order_service.dtos.OrderToPdfDTO;
 import com.order.order_service.models.OutboxMessage;
 import com.order.order_service.repositories.OutboxMessageRepository;
 import com.order.order_service.services.OutboxPublisherService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.converter.AbstractJavaTypeMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
 
 @Service
 public class OutboxPublisherServiceImplementation implements OutboxPublisherService {
@@ -29,10 +49,223 @@ public class OutboxPublisherServiceImplementation implements OutboxPublisherServ
     @Autowired
     private ObjectMapper objectMapper;
 
-    @Scheduled(fixedDelay = 10000)
-    @Transactional
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private Environment environment;
+
+    @Value("${outbox.publisher.batch-enabled:true}")
+    private boolean batchEnabled;
+
+    @Value("${outbox.publisher.batch-size:100}")
+    private int batchSize;
+
+    @Value("${outbox.publisher.max-pages-per-tick:10}")
+    private int maxPagesPerTick;
+
+    @Value("${outbox.publisher.instance-id:${spring.application.name}-${random.uuid}}")
+    private String instanceId;
+
+    @Value("${outbox.publisher.lease-duration-ms:60000}")
+    private long leaseDurationMs;
+
+    @Value("${outbox.publisher.raw-payload-enabled:true}")
+    private boolean rawPayloadEnabled;
+
+    @Value("${outbox.publisher.confirms-enabled:false}")
+    private boolean confirmsEnabled;
+
+    @Value("${outbox.publisher.confirm-timeout-ms:5000}")
+    private long confirmTimeoutMs;
+
+    @Value("${outbox.retry.base-delay-ms:1000}")
+    private long retryBaseDelayMs;
+
+    @Value("${outbox.retry.max-delay-ms:300000}")
+    private long retryMaxDelayMs;
+
+    @Value("${outbox.dispatch.enabled:true}")
+    private boolean dispatchEnabled;
+
+    @Value("${outbox.dispatch.queue-capacity:10000}")
+    private int dispatchQueueCapacity;
+
+    private BlockingQueue<Long> dispatchQueue;
+    private Thread dispatchWorker;
+    private Timer publishLatency;
+
+    @PostConstruct
+    public void startDispatcher() {
+        publishLatency = Timer.builder("outbox.publish.latency")
+                .description("Time from outbox message creation until it is published")
+                .register(meterRegistry);
+
+        if (!dispatchEnabled || !batchEnabled) {
+            return;
+        }
+
+        dispatchQueue = new LinkedBlockingQueue<>(dispatchQueueCapacity);
+        dispatchWorker = Threading.VIRTUAL.isActive(environment)
+                ? new VirtualThreadTaskExecutor().getVirtualThreadFactory().newThread(this::runDispatcher)
+                : new Thread(this::runDispatcher);
+        dispatchWorker.setName("outbox-dispatcher");
+        dispatchWorker.setDaemon(true);
+        dispatchWorker.start();
+    }
+
+    @PreDestroy
+    public void stopDispatcher() {
+        if (dispatchWorker != null) {
+            dispatchWorker.interrupt();
+        }
+    }
+
+    @Override
+    public void dispatch(Long messageId) {
+        if (dispatchQueue == null) {
+            return;
+        }
+
+        if (!dispatchQueue.offer(messageId)) {
+            logger.warn("Outbox dispatch queue is full, message {} will be published by the scheduled poll.", messageId);
+        }
+    }
+
+    private void runDispatcher() {
+        List<Long> ids = new ArrayList<>(batchSize);
+
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                ids.add(dispatchQueue.take());
+                dispatchQueue.drainTo(ids, batchSize - 1);
+
+                List<OutboxMessage> messages = claimMessages(ids);
+                if (!messages.isEmpty()) {
+                    publishPage(messages);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                logger.error("Immediate dispatch of outbox messages {} failed, leaving them to the scheduled poll: {}", ids, e.getMessage());
+            } finally {
+                ids.clear();
+            }
+        }
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${outbox.publisher.poll-interval-ms:10000}")
     public void processOutboxMessages() {
-        List<OutboxMessage> pendingMessages = outboxMessageRepository.findByProcessedFalseAndRetryCountLessThan(MAX_RETRIES);
+        if (batchEnabled) {
+            processOutboxMessagesInBatches();
+        } else {
+            transactionTemplate.executeWithoutResult(status -> processAllOutboxMessages());
+        }
+    }
+
+    private void processOutboxMessagesInBatches() {
+        long lastId = 0L;
+        int processedPages = 0;
+
+        while (processedPages < maxPagesPerTick) {
+            List<OutboxMessage> page = claimPage(lastId);
+
+            if (page.isEmpty()) {
+                break;
+            }
+
+            publishPage(page);
+
+            processedPages++;
+            lastId = page.get(page.size() - 1).getId();
+
+            if (page.size() < batchSize) {
+                break;
+            }
+        }
+    }
+
+    private void publishPage(List<OutboxMessage> page) {
+        List<OutboxMessage> sentMessages = new ArrayList<>(page.size());
+        Map<Integer, List<Long>> failedIdsByRetryCount = new HashMap<>();
+        Map<OutboxMessage, CorrelationData> awaitingConfirm = new LinkedHashMap<>();
+
+        for (OutboxMessage message : page) {
+            try {
+                if (confirmsEnabled) {
+                    CorrelationData correlationData = new CorrelationData(String.valueOf(message.getId()));
+                    sendMessage(message, correlationData);
+                    awaitingConfirm.put(message, correlationData);
+                } else {
+                    sendMessage(message, null);
+                    sentMessages.add(message);
+                }
+            } catch (Exception e) {
+                failedIdsByRetryCount.computeIfAbsent(message.getRetryCount() + 1, k -> new ArrayList<>()).add(message.getId());
+                logger.error("Failed to send outbox message with ID: {}. Retry count: {}. Error: {}",
+                        message.getId(), message.getRetryCount() + 1, e.getMessage());
+            }
+        }
+
+        long confirmDeadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(confirmTimeoutMs);
+        awaitingConfirm.forEach((message, correlationData) -> {
+            if (isConfirmed(correlationData, confirmDeadline)) {
+                sentMessages.add(message);
+            } else {
+                failedIdsByRetryCount.computeIfAbsent(message.getRetryCount() + 1, k -> new ArrayList<>()).add(message.getId());
+            }
+        });
+
+        List<Long> sentIds = sentMessages.stream().map(OutboxMessage::getId).toList();
+        LocalDateTime now = LocalDateTime.now();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!sentIds.isEmpty()) {
+                outboxMessageRepository.markProcessed(sentIds, instanceId);
+            }
+            failedIdsByRetryCount.forEach((retryCount, failedIds) ->
+                    outboxMessageRepository.scheduleRetry(failedIds, instanceId, nextAttemptAt(retryCount, now)));
+        });
+
+        for (OutboxMessage message : sentMessages) {
+            publishLatency.record(Duration.between(message.getCreatedAt(), now));
+        }
+
+        logger.info("Outbox page processed: {} sent, {} failed.", sentIds.size(), page.size() - sentIds.size());
+    }
+
+    private List<OutboxMessage> claimPage(long afterId) {
+        return transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<OutboxMessage> page = outboxMessageRepository.findClaimableMessages(MAX_RETRIES, afterId, now, batchSize);
+            leaseMessages(page, now);
+            return page;
+        });
+    }
+
+    private List<OutboxMessage> claimMessages(List<Long> ids) {
+        return transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<OutboxMessage> messages = outboxMessageRepository.findClaimableMessagesByIds(MAX_RETRIES, ids, now);
+            leaseMessages(messages, now);
+            return messages;
+        });
+    }
+
+    private void leaseMessages(List<OutboxMessage> messages, LocalDateTime now) {
+        if (!messages.isEmpty()) {
+            List<Long> ids = messages.stream().map(OutboxMessage::getId).toList();
+            outboxMessageRepository.claimMessages(ids, instanceId, now.plus(Duration.ofMillis(leaseDurationMs)));
+        }
+    }
+
+    private void processAllOutboxMessages() {
+        List<OutboxMessage> pendingMessages = outboxMessageRepository
+                .findByProcessedFalseAndRetryCountLessThanAndNextAttemptAtLessThanEqual(MAX_RETRIES, LocalDateTime.now());
 
         if (pendingMessages.isEmpty()) {
             logger.debug("No pending outbox messages found.");
@@ -42,21 +275,16 @@ public class OutboxPublisherServiceImplementation implements OutboxPublisherServ
         logger.info("Processing {} pending outbox messages.", pendingMessages.size());
         for (OutboxMessage message : pendingMessages) {
             try {
-                OrderToPdfDTO event = objectMapper.readValue(message.getPayload(), OrderToPdfDTO.class);
-
-                if (message.getId() % 2 == 0) {
-                    throw new RuntimeException("Simulated send failure");
-                }
-
-
-                rabbitTemplate.convertAndSend(message.getExchange(), message.getRoutingKey(), event);
+                sendMessage(message, null);
 
                 message.setProcessed(true);
                 outboxMessageRepository.save(message);
+                publishLatency.record(Duration.between(message.getCreatedAt(), LocalDateTime.now()));
 
                 logger.info("Successfully sent outbox message with ID: {}", message.getId());
             } catch (Exception e) {
                 message.setRetryCount(message.getRetryCount() + 1);
+                message.setNextAttemptAt(nextAttemptAt(message.getRetryCount(), LocalDateTime.now()));
                 outboxMessageRepository.save(message);
 
                 logger.error("Failed to send outbox message with ID: {}. Retry count: {}. Error: {}",
@@ -64,4 +292,76 @@ public class OutboxPublisherServiceImplementation implements OutboxPublisherServ
             }
         }
     }
+
+    private boolean isConfirmed(CorrelationData correlationData, long deadline) {
+        try {
+            CorrelationData.Confirm confirm = correlationData.getFuture()
+                    .get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+
+            if (!confirm.isAck()) {
+                logger.error("Broker nacked outbox message {}: {}", correlationData.getId(), confirm.getReason());
+                return false;
+            }
+            if (correlationData.getReturned() != null) {
+                logger.error("Outbox message {} was returned as unroutable: {}", correlationData.getId(), correlationData.getReturned().getReplyText());
+                return false;
+            }
+            return true;
+        } catch (TimeoutException e) {
+            logger.error("No publisher confirm for outbox message {} within {} ms", correlationData.getId(), confirmTimeoutMs);
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException e) {
+            logger.error("Publisher confirm for outbox message {} failed: {}", correlationData.getId(), e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Exponential backoff with equal jitter: half of the delay is fixed, the other half is random, so messages
+     * that failed together during a broker outage don't all come back at the same instant.
+     */
+    private LocalDateTime nextAttemptAt(int retryCount, LocalDateTime now) {
+        long delay = Math.min(retryMaxDelayMs, retryBaseDelayMs << Math.min(retryCount - 1, 30));
+        long jitteredDelay = delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+        return now.plus(Duration.ofMillis(jitteredDelay));
+    }
+
+    private void sendMessage(OutboxMessage message, CorrelationData correlationData) throws Exception {
+        if (rawPayloadEnabled) {
+            sendRawMessage(message, correlationData);
+            return;
+        }
+
+        OrderToPdfDTO event = objectMapper.readValue(message.getPayload(), OrderToPdfDTO.class);
+
+        if (message.getId() % 2 == 0) {
+            throw new RuntimeException("Simulated send failure");
+        }
+
+        rabbitTemplate.convertAndSend(message.getExchange(), message.getRoutingKey(), event, correlationData);
+    }
+
+    /**
+     * Sends the stored JSON as the message body, with the same headers Jackson2JsonMessageConverter would
+     * set, so consumers can't tell the difference and any event type can go through the outbox.
+     */
+    private void sendRawMessage(OutboxMessage message, CorrelationData correlationData) {
+        byte[] body = message.getPayload().getBytes(StandardCharsets.UTF_8);
+
+        MessageProperties messageProperties = new MessageProperties();
+        messageProperties.setContentType(MessageProperties.CONTENT_TYPE_JSON);
+        messageProperties.setContentEncoding(StandardCharsets.UTF_8.name());
+        messageProperties.setContentLength(body.length);
+        messageProperties.setHeader(AbstractJavaTypeMapper.DEFAULT_CLASSID_FIELD_NAME,
+                message.getPayloadType() != null ? message.getPayloadType() : message.getEventType());
+
+        if (message.getId() % 2 == 0) {
+            throw new RuntimeException("Simulated send failure");
+        }
+
+        rabbitTemplate.send(message.getExchange(), message.getRoutingKey(), new Message(body, messageProperties), correlationData);
+    }
 }
@@ -1,31 +1,48 @@
 package com.order.order_service.services.implementations;
 
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
 import com.order.order_service.dtos.ProductQuantityRecord;
+import com.order.order_service.dtos.ProductRecord;
+import com.order.order_service.dtos.ReservationRequestRecord;
 import com.order.order_service.exceptions.OrderException;
 import com.order.order_service.exceptions.ProductServiceException;
 import com.order.order_service.models.OrderItem;
 import com.order.order_service.services.ProductClientService;
 import com.order.order_service.utils.Constants;
+import com.order.order_service.utils.LongIntHashMap;
+import com.order.order_service.utils.ReservationResults;
 import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
 import io.github.resilience4j.ratelimiter.annotation.RateLimiter;
 import io.github.resilience4j.retry.annotation.Retry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
-@Service
+@Service("remoteProductClientService")
+@ConditionalOnProperty(name = "product.client.mode", havingValue = "blocking", matchIfMissing = true)
 public class ProductClientServiceImplementation implements ProductClientService {
 
     private static final Logger logger = LoggerFactory.getLogger(ProductClientService.class);
@@ -33,24 +50,45 @@ public class ProductClientServiceImplementation implements ProductClientService
     @Autowired
     private RestTemplate restTemplate;
 
+    @Autowired
+    @Qualifier("productDetailsRestTemplate")
+    private RestTemplate productDetailsRestTemplate;
+
+    @Autowired
+    private ThreadPoolTaskExecutor productDetailsExecutor;
+
     @Value("${PRODUCT_SERVICE_URL}")
     private String PRODUCT_SERVICE_URL;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${product.details.deadline-ms:2000}")
+    private long productDetailsDeadlineMs;
+
+    @Value("${product.details.cache.max-size:10000}")
+    private long productDetailsCacheMaxSize;
+
+    @Value("${product.details.cache.ttl-ms:600000}")
+    private long productDetailsCacheTtlMs;
+
+    @Value("${product.details.cache.refresh-after-ms:300000}")
+    private long productDetailsCacheRefreshAfterMs;
+
+    private LoadingCache<Long, ProductRecord> productDetailsCache;
+
     private Integer attempt = 0;
 
     @CircuitBreaker(name = "productBreaker", fallbackMethod = "getExistentProductsFallback")
     @Retry(name = "productRetry", fallbackMethod = "getExistentProductsFallback")
     @RateLimiter(name = "productRateLimiter", fallbackMethod = "getExistentProductsFallback")
     @Override
-    public HashMap<Long,Integer> getExistentProducts(List<ProductQuantityRecord> productQuantityRecordList) throws OrderException {
+    public LongIntHashMap getExistentProducts(List<ProductQuantityRecord> productQuantityRecordList) throws OrderException {
         logger.info("Checking product availability for: {}", productQuantityRecordList);
-        ParameterizedTypeReference<HashMap<Long, Integer>> responseType =
-                new ParameterizedTypeReference<>() {};
-
         HttpEntity<List<ProductQuantityRecord>> httpEntity = new HttpEntity<>(productQuantityRecordList);
 
         try{
-            ResponseEntity<HashMap<Long, Integer>> responseEntity = restTemplate.exchange(PRODUCT_SERVICE_URL + "/private", HttpMethod.PUT, httpEntity, responseType);
+            ResponseEntity<LongIntHashMap> responseEntity = restTemplate.exchange(PRODUCT_SERVICE_URL + "/private", HttpMethod.PUT, httpEntity, LongIntHashMap.class);
             System.out.println(PRODUCT_SERVICE_URL + "/private");
             return responseEntity.getBody();
         } catch(RestClientException e) {
@@ -59,7 +97,7 @@ public class ProductClientServiceImplementation implements ProductClientService
         }
     }
 
-    public HashMap<Long, Integer> getExistentProductsFallback(List<ProductQuantityRecord> productQuantityRecordList, Throwable t) {
+    public LongIntHashMap getExistentProductsFallback(List<ProductQuantityRecord> productQuantityRecordList, Throwable t) {
         System.out.println("Attemps Existent Products: " + attempt);
         attempt++;
         logger.error("Fallback triggered for getExistentProducts: {}", t.getMessage());
@@ -96,4 +134,139 @@ public class ProductClientServiceImplementation implements ProductClientService
 
         throw new ProductServiceException("Rate limit exceeded or service unavailable. Please try again later.");
     }
-}
\ No newline at end of file
+
+    // Not retried: a reservation whose response was lost may already have been applied
+    @CircuitBreaker(name = "productBreaker", fallbackMethod = "reserveProductsFallback")
+    @RateLimiter(name = "productRateLimiter", fallbackMethod = "reserveProductsFallback")
+    @Override
+    public ReservationResults reserveProducts(List<ReservationRequestRecord> reservationRequestList) throws ProductServiceException {
+        logger.info("Reserving stock for: {}", reservationRequestList);
+        HttpEntity<List<ReservationRequestRecord>> httpEntity = new HttpEntity<>(reservationRequestList);
+
+        try {
+            ResponseEntity<ReservationResults> responseEntity = restTemplate.exchange(PRODUCT_SERVICE_URL + "/private/reserve", HttpMethod.PUT, httpEntity, ReservationResults.class);
+            return responseEntity.getBody() != null ? responseEntity.getBody() : new ReservationResults();
+        } catch(RestClientException e) {
+            logger.error(Constants.UPDATE_STOCK_ERROR + " {}", e.getMessage());
+            throw new ProductServiceException(Constants.COM_ERR_PROD);
+        }
+    }
+
+    public ReservationResults reserveProductsFallback(List<ReservationRequestRecord> reservationRequestList, Throwable throwable) throws ProductServiceException {
+        logger.error("Fallback triggered for reserveProducts due to: {}", throwable.getMessage());
+
+        throw new ProductServiceException("Rate limit exceeded or service unavailable. Please try again later.");
+    }
+
+    // Retried: releasing an order's reservations is idempotent on product-service's side
+    @CircuitBreaker(name = "productBreaker", fallbackMethod = "releaseReservationsFallback")
+    @Retry(name = "productRetry", fallbackMethod = "releaseReservationsFallback")
+    @RateLimiter(name = "productRateLimiter", fallbackMethod = "releaseReservationsFallback")
+    @Override
+    public void releaseReservations(Long orderId, List<ProductQuantityRecord> productQuantityRecordList) throws ProductServiceException {
+        logger.info("Releasing reserved stock of order {}: {}", orderId, productQuantityRecordList);
+        HttpEntity<List<ProductQuantityRecord>> httpEntity = new HttpEntity<>(productQuantityRecordList);
+
+        try {
+            restTemplate.exchange(PRODUCT_SERVICE_URL + "/private/release/" + orderId, HttpMethod.PUT, httpEntity, String.class);
+        } catch(RestClientException e) {
+            logger.error(Constants.UPDATE_STOCK_ERROR + " {}", e.getMessage());
+            throw new ProductServiceException(Constants.COM_ERR_PROD);
+        }
+    }
+
+    public void releaseReservationsFallback(Long orderId, List<ProductQuantityRecord> productQuantityRecordList, Throwable throwable) throws ProductServiceException {
+        logger.error("Fallback triggered for releaseReservations due to: {}", throwable.getMessage());
+
+        throw new ProductServiceException("Rate limit exceeded or service unavailable. Please try again later.");
+    }
+
+    @CircuitBreaker(name = "productBreaker", fallbackMethod = "releaseReservationsDownToFallback")
+    @Retry(name = "productRetry", fallbackMethod = "releaseReservationsDownToFallback")
+    @RateLimiter(name = "productRateLimiter", fallbackMethod = "releaseReservationsDownToFallback")
+    @Override
+    public void releaseReservationsDownTo(Long orderId, List<ProductQuantityRecord> productQuantityRecordList) throws ProductServiceException {
+        logger.info("Releasing reserved stock of order {} down to: {}", orderId, productQuantityRecordList);
+        HttpEntity<List<ProductQuantityRecord>> httpEntity = new HttpEntity<>(productQuantityRecordList);
+
+        try {
+            restTemplate.exchange(PRODUCT_SERVICE_URL + "/private/release/" + orderId + "/down-to", HttpMethod.PUT, httpEntity, String.class);
+        } catch(RestClientException e) {
+            logger.error(Constants.UPDATE_STOCK_ERROR + " {}", e.getMessage());
+            throw new ProductServiceException(Constants.COM_ERR_PROD);
+        }
+    }
+
+    public void releaseReservationsDownToFallback(Long orderId, List<ProductQuantityRecord> productQuantityRecordList, Throwable throwable) throws ProductServiceException {
+        logger.error("Fallback triggered for releaseReservationsDownTo due to: {}", throwable.getMessage());
+
+        throw new ProductServiceException("Rate limit exceeded or service unavailable. Please try again later.");
+    }
+
+    @PostConstruct
+    public void initProductDetailsCache() {
+        productDetailsCache = Caffeine.newBuilder()
+                .maximumSize(productDetailsCacheMaxSize)
+                .expireAfterWrite(Duration.ofMillis(productDetailsCacheTtlMs))
+                .refreshAfterWrite(Duration.ofMillis(productDetailsCacheRefreshAfterMs))
+                .executor(productDetailsExecutor)
+                .recordStats()
+                .build(new CacheLoader<>() {
+                    @Override
+                    public ProductRecord load(Long productId) {
+                        return fetchProductDetails(productId);
+                    }
+
+                    @Override
+                    public Map<Long, ProductRecord> loadAll(Set<? extends Long> productIds) {
+                        return fetchProductDetails(productIds);
+                    }
+                });
+
+        CaffeineCacheMetrics.monitor(meterRegistry, productDetailsCache, "productDetails");
+    }
+
+    @Override
+    public Map<Long, ProductRecord> getProductDetails(Collection<Long> productIds) {
+        logger.info("Fetching details for {} products", productIds.size());
+        return productDetailsCache.getAll(productIds);
+    }
+
+    private Map<Long, ProductRecord> fetchProductDetails(Set<? extends Long> productIds) {
+        Map<Long, CompletableFuture<ProductRecord>> pendingProducts = new LinkedHashMap<>();
+
+        for (Long productId : productIds) {
+            try {
+                pendingProducts.put(productId, CompletableFuture.supplyAsync(() -> fetchProductDetails(productId), productDetailsExecutor));
+            } catch (RejectedExecutionException e) {
+                // Pool and queue are full: leave this product out like a timed-out one instead of failing the caller
+                logger.warn("Skipped fetching product {} details, executor saturated", productId);
+            }
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(productDetailsDeadlineMs);
+        Map<Long, ProductRecord> products = new HashMap<>();
+
+        pendingProducts.forEach((productId, pendingProduct) -> {
+            try {
+                ProductRecord product = pendingProduct.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                if (product != null) {
+                    products.put(productId, product);
+                }
+            } catch (TimeoutException e) {
+                pendingProduct.cancel(true);
+                logger.warn("Timed out fetching product {} details", productId);
+            } catch (ExecutionException e) {
+                logger.warn("Failed to fetch product {} details", productId);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                pendingProduct.cancel(true);
+            }
+        });
+
+        return products;
+    }
+
+    private ProductRecord fetchProductDetails(Long productId) {
+        return productDetailsRestTemplate.getForObject(PRODUCT_SERVICE_URL + "/public/" + productId, ProductRecord.class);
+    }
+}
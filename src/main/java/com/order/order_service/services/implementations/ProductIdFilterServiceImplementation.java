@@ -0,0 +1,153 @@
+package com.order.order_service.services.implementations;
+
+import com.order.order_service.services.ProductIdFilterService;
+import com.order.order_service.utils.ProductIdBloomFilter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Keeps a Bloom filter of every product id so that orders for ids that certainly don't exist are answered without
+ * calling product-service. It fails open: until a filter has been built, or when it is disabled, every id passes.
+ * A failed rebuild keeps the previous filter.
+ * <p>
+ * Products created between rebuilds pass too: ids seen in stock events are kept aside until a rebuild includes them.
+ */
+@Service
+public class ProductIdFilterServiceImplementation implements ProductIdFilterService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductIdFilterServiceImplementation.class);
+
+    @Autowired
+    private RestTemplate restTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${PRODUCT_SERVICE_URL}")
+    private String PRODUCT_SERVICE_URL;
+
+    @Value("${product.id-filter.enabled:true}")
+    private boolean enabled;
+
+    @Value("${product.id-filter.source:remote}")
+    private String source;
+
+    @Value("${product.id-filter.snapshot-file:}")
+    private String snapshotFile;
+
+    @Value("${product.id-filter.expected-fpp:0.01}")
+    private double expectedFpp;
+
+    private volatile ProductIdBloomFilter filter;
+    private final Set<Long> seenSinceRebuild = ConcurrentHashMap.newKeySet();
+
+    private Counter rejectedChecks;
+    private Counter passedChecks;
+    private Counter falsePositives;
+
+    @PostConstruct
+    public void initMetrics() {
+        rejectedChecks = Counter.builder("product.id.filter.checks").tag("result", "rejected").register(meterRegistry);
+        passedChecks = Counter.builder("product.id.filter.checks").tag("result", "passed").register(meterRegistry);
+        falsePositives = Counter.builder("product.id.filter.false.positives")
+                .description("Ids the Bloom filter let through but product-service reported as not found")
+                .register(meterRegistry);
+
+        Gauge.builder("product.id.filter.expected.fpp", this, service -> service.filter != null ? service.filter.expectedFpp() : 0)
+                .register(meterRegistry);
+        Gauge.builder("product.id.filter.memory", this, service -> service.filter != null ? service.filter.sizeInBytes() : 0)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("product.id.filter.ids", this, service -> service.filter != null ? service.filter.size() : 0)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public boolean mightExist(Long productId) {
+        ProductIdBloomFilter currentFilter = filter;
+        if (!enabled || currentFilter == null || productId == null) {
+            return true;
+        }
+
+        if (currentFilter.mightContain(productId) || seenSinceRebuild.contains(productId)) {
+            passedChecks.increment();
+            return true;
+        }
+
+        rejectedChecks.increment();
+        return false;
+    }
+
+    @Override
+    public void recordNotFound(Long productId) {
+        // Ids that only passed because the filter was missing or because of a stock event aren't the filter's error
+        ProductIdBloomFilter currentFilter = filter;
+        if (enabled && currentFilter != null && productId != null && currentFilter.mightContain(productId)) {
+            falsePositives.increment();
+        }
+    }
+
+    @Override
+    public void recordExisting(Long productId) {
+        if (enabled && productId != null) {
+            seenSinceRebuild.add(productId);
+        }
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${product.id-filter.refresh-interval-ms:300000}")
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+
+        try {
+            long[] productIds = "file".equals(source) ? readSnapshot() : fetchProductIds();
+            if (productIds.length == 0) {
+                // An empty catalog would reject every order, more likely a bad snapshot than a real state
+                logger.warn("Product id source returned no ids, keeping the previous product id filter");
+                return;
+            }
+            ProductIdBloomFilter rebuiltFilter = ProductIdBloomFilter.of(productIds, expectedFpp);
+            filter = rebuiltFilter;
+            seenSinceRebuild.removeIf(rebuiltFilter::mightContain);
+            logger.info("Product id filter rebuilt with {} ids up to id {} ({} bytes)",
+                    productIds.length, rebuiltFilter.maxProductId(), rebuiltFilter.sizeInBytes());
+        } catch (Exception e) {
+            logger.warn("Could not rebuild the product id filter, keeping the previous one: {}", e.getMessage());
+        }
+    }
+
+    private long[] fetchProductIds() {
+        long[] productIds = restTemplate.getForObject(PRODUCT_SERVICE_URL + "/private/ids", long[].class);
+        if (productIds == null) {
+            throw new IllegalStateException("product-service returned no product ids");
+        }
+        return productIds;
+    }
+
+    private long[] readSnapshot() throws IOException {
+        try (Stream<String> lines = Files.lines(Path.of(snapshotFile))) {
+            return lines.map(String::trim)
+                    .filter(line -> !line.isEmpty())
+                    .mapToLong(Long::parseLong)
+                    .toArray();
+        }
+    }
+}
@@ -0,0 +1,307 @@
+package com.order.order_service.services.implementations;
+
+import com.github.benmanes.caffeine.cache.AsyncCacheLoader;
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.order.order_service.dtos.ProductQuantityRecord;
+import com.order.order_service.dtos.ProductRecord;
+import com.order.order_service.dtos.ReservationRequestRecord;
+import com.order.order_service.exceptions.ProductServiceException;
+import com.order.order_service.models.OrderItem;
+import com.order.order_service.services.ProductClientService;
+import com.order.order_service.utils.Constants;
+import com.order.order_service.utils.LongIntHashMap;
+import com.order.order_service.utils.ReservationResults;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.ratelimiter.RateLimiter;
+import io.github.resilience4j.ratelimiter.RateLimiterRegistry;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.github.resilience4j.reactor.ratelimiter.operator.RateLimiterOperator;
+import io.github.resilience4j.reactor.retry.RetryOperator;
+import io.github.resilience4j.retry.Retry;
+import io.github.resilience4j.retry.RetryRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.netty.channel.ChannelOption;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * WebClient-based product-service client, enabled with {@code product.client.mode=reactive}. It applies the same
+ * productBreaker, productRetry and productRateLimiter instances as the blocking client, as Reactor operators.
+ * <p>
+ * This mode is non-blocking I/O only. {@link ProductClientService} is synchronous, so every method blocks the calling
+ * thread until its Mono completes, retry back-off and rate-limiter waits included. What it changes is that the HTTP
+ * exchanges run on Reactor Netty's event loop and connection pool, and that product details fan out without a worker
+ * thread per product.
+ */
+@Service("remoteProductClientService")
+@ConditionalOnProperty(name = "product.client.mode", havingValue = "reactive")
+public class ReactiveProductClientServiceImplementation implements ProductClientService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveProductClientServiceImplementation.class);
+    private static final String FALLBACK_MESSAGE = "Rate limit exceeded or service unavailable. Please try again later.";
+
+    @Autowired
+    private WebClient.Builder webClientBuilder;
+
+    @Autowired
+    private CircuitBreakerRegistry circuitBreakerRegistry;
+
+    @Autowired
+    private RetryRegistry retryRegistry;
+
+    @Autowired
+    private RateLimiterRegistry rateLimiterRegistry;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${PRODUCT_SERVICE_URL}")
+    private String PRODUCT_SERVICE_URL;
+
+    @Value("${http.client.connect-timeout-ms:2000}")
+    private int connectTimeoutMs;
+
+    @Value("${http.client.read-timeout-ms:2000}")
+    private int readTimeoutMs;
+
+    @Value("${http.client.product-service.max-per-route:100}")
+    private int maxConnections;
+
+    @Value("${http.client.idle-eviction-ms:30000}")
+    private long idleEvictionMs;
+
+    @Value("${product.details.max-concurrency:16}")
+    private int productDetailsMaxConcurrency;
+
+    @Value("${product.details.deadline-ms:2000}")
+    private long productDetailsDeadlineMs;
+
+    @Value("${product.details.cache.max-size:10000}")
+    private long productDetailsCacheMaxSize;
+
+    @Value("${product.details.cache.ttl-ms:600000}")
+    private long productDetailsCacheTtlMs;
+
+    @Value("${product.details.cache.refresh-after-ms:300000}")
+    private long productDetailsCacheRefreshAfterMs;
+
+    private WebClient webClient;
+    private CircuitBreaker circuitBreaker;
+    private Retry retry;
+    private RateLimiter rateLimiter;
+    private AsyncLoadingCache<Long, ProductRecord> productDetailsCache;
+
+    @PostConstruct
+    public void init() {
+        HttpClient httpClient = HttpClient.create(ConnectionProvider.builder("product-service")
+                        .maxConnections(maxConnections)
+                        .maxIdleTime(Duration.ofMillis(idleEvictionMs))
+                        .build())
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutMs)
+                .responseTimeout(Duration.ofMillis(readTimeoutMs));
+
+        webClient = webClientBuilder
+                .baseUrl(PRODUCT_SERVICE_URL)
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .build();
+
+        circuitBreaker = circuitBreakerRegistry.circuitBreaker("productBreaker");
+        retry = retryRegistry.retry("productRetry");
+        rateLimiter = rateLimiterRegistry.rateLimiter("productRateLimiter");
+
+        productDetailsCache = Caffeine.newBuilder()
+                .maximumSize(productDetailsCacheMaxSize)
+                .expireAfterWrite(Duration.ofMillis(productDetailsCacheTtlMs))
+                .refreshAfterWrite(Duration.ofMillis(productDetailsCacheRefreshAfterMs))
+                .recordStats()
+                .buildAsync(new AsyncCacheLoader<>() {
+                    @Override
+                    public CompletableFuture<ProductRecord> asyncLoad(Long productId, Executor executor) {
+                        return fetchProductDetails(productId).toFuture();
+                    }
+
+                    @Override
+                    public CompletableFuture<Map<Long, ProductRecord>> asyncLoadAll(Set<? extends Long> productIds, Executor executor) {
+                        return Flux.fromIterable(productIds)
+                                .flatMap(productId -> fetchProductDetails(productId)
+                                        .timeout(Duration.ofMillis(productDetailsDeadlineMs))
+                                        .onErrorResume(e -> {
+                                            logger.warn("Failed to fetch product {} details", productId);
+                                            return Mono.empty();
+                                        }), productDetailsMaxConcurrency)
+                                .collectMap(ProductRecord::id, product -> product)
+                                .toFuture();
+                    }
+                });
+
+        CaffeineCacheMetrics.monitor(meterRegistry, productDetailsCache, "productDetails");
+    }
+
+    private Mono<LongIntHashMap> getExistentProductsAsync(List<ProductQuantityRecord> productQuantityRecordList) {
+        logger.info("Checking product availability for: {}", productQuantityRecordList);
+
+        return withResilience(webClient.put()
+                .uri("/private")
+                .bodyValue(productQuantityRecordList)
+                .retrieve()
+                .bodyToMono(LongIntHashMap.class))
+                .onErrorMap(e -> {
+                    logger.error("Fallback triggered for getExistentProducts: {}", e.getMessage());
+                    return new RuntimeException(FALLBACK_MESSAGE);
+                });
+    }
+
+    private Mono<Void> updateProductsAsync(List<OrderItem> orderItemList, int factor) {
+        logger.info("Updating product stock with factor: {}", factor);
+        List<ProductQuantityRecord> productQuantityRecordList = orderItemList.stream()
+                .map(orderItem -> new ProductQuantityRecord(orderItem.getProductId(), factor * orderItem.getQuantity()))
+                .toList();
+
+        return withResilience(webClient.put()
+                .uri("/private/to-order")
+                .bodyValue(productQuantityRecordList)
+                .retrieve()
+                .bodyToMono(String.class))
+                .then()
+                .onErrorMap(e -> {
+                    logger.error("Fallback triggered for updateProducts due to: {}", e.getMessage());
+                    return new ProductServiceException(FALLBACK_MESSAGE);
+                });
+    }
+
+    private Mono<ReservationResults> reserveProductsAsync(List<ReservationRequestRecord> reservationRequestList) {
+        logger.info("Reserving stock for: {}", reservationRequestList);
+
+        // Not retried: a reservation whose response was lost may already have been applied
+        return withCircuitBreaker(webClient.put()
+                .uri("/private/reserve")
+                .bodyValue(reservationRequestList)
+                .retrieve()
+                .bodyToMono(ReservationResults.class)
+                .switchIfEmpty(Mono.fromSupplier(ReservationResults::new)))
+                .onErrorMap(e -> {
+                    logger.error("Fallback triggered for reserveProducts due to: {}", e.getMessage());
+                    return new ProductServiceException(FALLBACK_MESSAGE);
+                });
+    }
+
+    private Mono<Void> releaseReservationsAsync(Long orderId, List<ProductQuantityRecord> productQuantityRecordList) {
+        logger.info("Releasing reserved stock of order {}: {}", orderId, productQuantityRecordList);
+
+        // Retried: releasing an order's reservations is idempotent on product-service's side
+        return withResilience(webClient.put()
+                .uri("/private/release/{orderId}", orderId)
+                .bodyValue(productQuantityRecordList)
+                .retrieve()
+                .bodyToMono(String.class))
+                .then()
+                .onErrorMap(e -> {
+                    logger.error("Fallback triggered for releaseReservations due to: {}", e.getMessage());
+                    return new ProductServiceException(FALLBACK_MESSAGE);
+                });
+    }
+
+    private Mono<Void> releaseReservationsDownToAsync(Long orderId, List<ProductQuantityRecord> productQuantityRecordList) {
+        logger.info("Releasing reserved stock of order {} down to: {}", orderId, productQuantityRecordList);
+
+        return withResilience(webClient.put()
+                .uri("/private/release/{orderId}/down-to", orderId)
+                .bodyValue(productQuantityRecordList)
+                .retrieve()
+                .bodyToMono(String.class))
+                .then()
+                .onErrorMap(e -> {
+                    logger.error("Fallback triggered for releaseReservationsDownTo due to: {}", e.getMessage());
+                    return new ProductServiceException(FALLBACK_MESSAGE);
+                });
+    }
+
+    @Override
+    public LongIntHashMap getExistentProducts(List<ProductQuantityRecord> productQuantityRecordList) {
+        return getExistentProductsAsync(productQuantityRecordList).block();
+    }
+
+    @Override
+    public void updateProducts(List<OrderItem> orderItemList, int factor) throws ProductServiceException {
+        updateProductsAsync(orderItemList, factor).block();
+    }
+
+    @Override
+    public ReservationResults reserveProducts(List<ReservationRequestRecord> reservationRequestList) throws ProductServiceException {
+        return reserveProductsAsync(reservationRequestList).block();
+    }
+
+    @Override
+    public void releaseReservations(Long orderId, List<ProductQuantityRecord> productQuantityRecordList) throws ProductServiceException {
+        releaseReservationsAsync(orderId, productQuantityRecordList).block();
+    }
+
+    @Override
+    public void releaseReservationsDownTo(Long orderId, List<ProductQuantityRecord> productQuantityRecordList) throws ProductServiceException {
+        releaseReservationsDownToAsync(orderId, productQuantityRecordList).block();
+    }
+
+    @Override
+    public Map<Long, ProductRecord> getProductDetails(Collection<Long> productIds) {
+        logger.info("Fetching details for {} products", productIds.size());
+
+        try {
+            return productDetailsCache.getAll(productIds).get(productDetailsDeadlineMs + readTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            logger.warn("Failed to fetch product details: {}", e.getMessage());
+            return Map.of();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Map.of();
+        }
+    }
+
+    private Mono<ProductRecord> fetchProductDetails(Long productId) {
+        return webClient.get()
+                .uri("/public/{id}", productId)
+                .retrieve()
+                .bodyToMono(ProductRecord.class);
+    }
+
+    /**
+     * Same layering as the resilience4j annotations on the blocking client: Retry(CircuitBreaker(RateLimiter(call))).
+     */
+    private <T> Mono<T> withResilience(Mono<T> call) {
+        return withCircuitBreaker(call)
+                .transformDeferred(RetryOperator.of(retry));
+    }
+
+    private <T> Mono<T> withCircuitBreaker(Mono<T> call) {
+        return call
+                .onErrorMap(WebClientException.class, e -> {
+                    logger.error(Constants.COM_ERR_PROD + "{}", e.getMessage());
+                    return new ProductServiceException(Constants.COM_ERR_PROD);
+                })
+                .transformDeferred(RateLimiterOperator.of(rateLimiter))
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker));
+    }
+}
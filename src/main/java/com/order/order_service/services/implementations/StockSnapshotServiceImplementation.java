@@ -0,0 +1,117 @@
+package com.order.order_service.services.implementations;
+
+import com.order.order_service.config.RabbitMQConfig;
+import com.order.order_service.dtos.ProductStockEventRecord;
+import com.order.order_service.services.ProductIdFilterService;
+import com.order.order_service.services.StockSnapshotService;
+import com.order.order_service.utils.LongIntHashMap;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Local copy of product stock fed by product-service stock events. It is only used for optimistic pre-checks:
+ * an order line is rejected locally when a recent enough entry shows too little stock, anything else still goes
+ * to product-service for the actual reservation. Entries older than stock.snapshot.max-age-ms are ignored, which
+ * bounds the damage of lost or delayed events.
+ */
+@Service
+public class StockSnapshotServiceImplementation implements StockSnapshotService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockSnapshotServiceImplementation.class);
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ProductIdFilterService productIdFilterService;
+
+    @Value("${stock.snapshot.enabled:true}")
+    private boolean enabled;
+
+    @Value("${stock.snapshot.max-age-ms:60000}")
+    private long maxAgeMs;
+
+    @Value("${stock.snapshot.expected-products:10000}")
+    private int expectedProducts;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final long startedAtNanos = System.nanoTime();
+    private LongIntHashMap stock;
+    // Seconds since startedAtNanos at which each entry was last updated
+    private LongIntHashMap updatedAt;
+
+    @PostConstruct
+    public void initSnapshot() {
+        stock = new LongIntHashMap(expectedProducts);
+        updatedAt = new LongIntHashMap(expectedProducts);
+
+        Gauge.builder("stock.snapshot.products", this, service -> service.size())
+                .register(meterRegistry);
+    }
+
+    @Override
+    @RabbitListener(queues = RabbitMQConfig.QUEUE_PRODUCT_STOCK, autoStartup = "${stock.snapshot.enabled:true}")
+    public void onStockChanged(ProductStockEventRecord event) {
+        if (event == null || event.productId() == null) {
+            logger.warn("Ignoring stock event without product id: {}", event);
+            return;
+        }
+        if (event.quantity() != null) {
+            productIdFilterService.recordExisting(event.productId());
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (event.quantity() == null) {
+                stock.remove(event.productId());
+                updatedAt.remove(event.productId());
+            } else {
+                stock.put(event.productId(), event.quantity());
+                updatedAt.put(event.productId(), nowSeconds());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean lacksStock(Long productId, int quantity) {
+        if (!enabled || productId == null) {
+            return false;
+        }
+
+        lock.readLock().lock();
+        try {
+            int updatedAtSeconds = updatedAt.get(productId, -1);
+            if (updatedAtSeconds < 0 || TimeUnit.SECONDS.toMillis(nowSeconds() - updatedAtSeconds) > maxAgeMs) {
+                return false;
+            }
+            return stock.get(productId, Integer.MAX_VALUE) < quantity;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int size() {
+        lock.readLock().lock();
+        try {
+            return stock.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int nowSeconds() {
+        return (int) TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - startedAtNanos);
+    }
+}
@@ -0,0 +1,105 @@
+package com.order.order_service.services.implementations;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.order.order_service.exceptions.OrderException;
+import com.order.order_service.services.UserClientService;
+import com.order.order_service.utils.Constants;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+
+@Service
+public class UserClientServiceImplementation implements UserClientService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserClientServiceImplementation.class);
+
+    @Autowired
+    private RestTemplate restTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${USER_SERVICE_URL}")
+    private String USER_SERVICE_URL;
+
+    @Value("${user.cache.max-size:10000}")
+    private long userCacheMaxSize;
+
+    @Value("${user.cache.ttl-ms:3600000}")
+    private long userCacheTtlMs;
+
+    @Value("${user.cache.negative-max-size:1000}")
+    private long negativeCacheMaxSize;
+
+    @Value("${user.cache.negative-ttl-ms:60000}")
+    private long negativeCacheTtlMs;
+
+    private Cache<String, Long> userIdCache;
+    private Cache<String, HttpStatus> unknownUserCache;
+
+    @PostConstruct
+    public void initCaches() {
+        userIdCache = Caffeine.newBuilder()
+                .maximumSize(userCacheMaxSize)
+                .expireAfterWrite(Duration.ofMillis(userCacheTtlMs))
+                .recordStats()
+                .build();
+
+        unknownUserCache = Caffeine.newBuilder()
+                .maximumSize(negativeCacheMaxSize)
+                .expireAfterWrite(Duration.ofMillis(negativeCacheTtlMs))
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, userIdCache, "userIds");
+        CaffeineCacheMetrics.monitor(meterRegistry, unknownUserCache, "unknownUsers");
+    }
+
+    @Override
+    public Long getUserIdFromEmail(String email) throws OrderException {
+        Long userId = userIdCache.getIfPresent(email);
+        if (userId != null) {
+            return userId;
+        }
+
+        HttpStatus unknownUserStatus = unknownUserCache.getIfPresent(email);
+        if (unknownUserStatus != null) {
+            throw new OrderException(Constants.USER_NOT_FOUND, unknownUserStatus);
+        }
+
+        try {
+            userId = restTemplate.getForObject(USER_SERVICE_URL + "/private/email/" + email, Long.class);
+        } catch (HttpStatusCodeException e) {
+            // getStatusCode() is only an HttpStatus for codes Spring knows, anything else is a DefaultHttpStatusCode
+            HttpStatus status = HttpStatus.resolve(e.getStatusCode().value());
+            if (status == null) {
+                logger.error(Constants.COM_USR_PROD + ": unexpected status {}", e.getStatusCode().value());
+                throw new OrderException(Constants.COM_USR_PROD, HttpStatus.INTERNAL_SERVER_ERROR);
+            }
+            if (status.is4xxClientError()) {
+                unknownUserCache.put(email, status);
+            }
+            throw new OrderException(Constants.USER_NOT_FOUND, status);
+        } catch (RestClientException e) {
+            logger.error(Constants.COM_USR_PROD + ": {}", e.getMessage());
+            throw new OrderException(Constants.COM_USR_PROD, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+
+        if (userId != null) {
+            userIdCache.put(email, userId);
+        }
+        return userId;
+    }
+}
@@ -15,4 +15,8 @@ public class Constants {
     public static final String ORDER_DELETED = "Order deleted!";
     public static final String ORDER_NOT_FOUND_WITH_ID = "Order not found with ID: ";
     public static final String UPDATE_STOCK_ERROR = "Error updating product stock: ";
+    public static final String INV_PAGE_SIZE = "The page size must be greater than zero";
+    public static final String ORDER_CANCELLED = "The order could not be completed and has been cancelled";
+    public static final String PRODUCT_DETAILS_UNAVAILABLE = "The product details for the order are unavailable, try again later";
+    public static final String ORDER_CHANGED = "The order changed while its status was being updated, try again";
 }
\ No newline at end of file
@@ -0,0 +1,51 @@
+package com.order.order_service.utils;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+
+import java.io.IOException;
+
+/**
+ * Reads a JSON object of product id to quantity, e.g. {@code {"1":5,"2":0}}, straight from the token stream into a
+ * {@link LongIntHashMap}. Null quantities are skipped, like a missing product.
+ */
+public class LongIntHashMapDeserializer extends StdDeserializer<LongIntHashMap> {
+
+    public LongIntHashMapDeserializer() {
+        super(LongIntHashMap.class);
+    }
+
+    @Override
+    public LongIntHashMap deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.START_OBJECT) {
+            token = parser.nextToken();
+        } else if (token != JsonToken.FIELD_NAME && token != JsonToken.END_OBJECT) {
+            return (LongIntHashMap) context.handleUnexpectedToken(LongIntHashMap.class, parser);
+        }
+
+        LongIntHashMap map = new LongIntHashMap();
+        for (; token == JsonToken.FIELD_NAME; token = parser.nextToken()) {
+            long productId = parseLong(parser, context);
+            JsonToken valueToken = parser.nextToken();
+
+            if (valueToken == JsonToken.VALUE_NUMBER_INT) {
+                map.put(productId, parser.getIntValue());
+            } else if (valueToken != JsonToken.VALUE_NULL) {
+                return (LongIntHashMap) context.handleUnexpectedToken(LongIntHashMap.class, parser);
+            }
+        }
+        return map;
+    }
+
+    private static long parseLong(JsonParser parser, DeserializationContext context) throws IOException {
+        String name = parser.currentName();
+        try {
+            return Long.parseLong(name);
+        } catch (NumberFormatException e) {
+            throw context.weirdKeyException(Long.class, name, "not a product id");
+        }
+    }
+}
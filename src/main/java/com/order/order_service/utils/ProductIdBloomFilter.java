@@ -0,0 +1,88 @@
+package com.order.order_service.utils;
+
+/**
+ * Immutable Bloom filter over product ids, backed by a plain long[] bitset. Bit positions come from double hashing
+ * of two mixed 64-bit hashes of the id.
+ */
+public final class ProductIdBloomFilter {
+
+    private static final double LN2 = Math.log(2);
+
+    private final long[] bits;
+    private final long bitSize;
+    private final int hashFunctions;
+    private final int expectedInsertions;
+    private long maxProductId = Long.MIN_VALUE;
+
+    private ProductIdBloomFilter(long bitSize, int hashFunctions, int expectedInsertions) {
+        this.bits = new long[(int) ((bitSize + 63) >>> 6)];
+        this.bitSize = (long) bits.length << 6;
+        this.hashFunctions = hashFunctions;
+        this.expectedInsertions = expectedInsertions;
+    }
+
+    public static ProductIdBloomFilter of(long[] productIds, double fpp) {
+        int insertions = Math.max(productIds.length, 1);
+        long bitSize = Math.max(64, (long) Math.ceil(-insertions * Math.log(fpp) / (LN2 * LN2)));
+        int hashFunctions = Math.max(1, (int) Math.round((double) bitSize / insertions * LN2));
+
+        ProductIdBloomFilter filter = new ProductIdBloomFilter(bitSize, hashFunctions, productIds.length);
+        for (long productId : productIds) {
+            filter.put(productId);
+        }
+        return filter;
+    }
+
+    public boolean mightContain(long productId) {
+        long hash1 = mix(productId);
+        long hash2 = mix(hash1 + 0x9E3779B97F4A7C15L);
+
+        for (int i = 1; i <= hashFunctions; i++) {
+            long index = ((hash1 + i * hash2) & Long.MAX_VALUE) % bitSize;
+            if ((bits[(int) (index >>> 6)] & (1L << index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * False-positive probability for the ids actually inserted, (1 - e^(-kn/m))^k.
+     */
+    public double expectedFpp() {
+        return Math.pow(1 - Math.exp(-(double) hashFunctions * expectedInsertions / bitSize), hashFunctions);
+    }
+
+    public long sizeInBytes() {
+        return (long) bits.length * Long.BYTES;
+    }
+
+    public int size() {
+        return expectedInsertions;
+    }
+
+    public long maxProductId() {
+        return maxProductId;
+    }
+
+    private void put(long productId) {
+        maxProductId = Math.max(maxProductId, productId);
+        long hash1 = mix(productId);
+        long hash2 = mix(hash1 + 0x9E3779B97F4A7C15L);
+
+        for (int i = 1; i <= hashFunctions; i++) {
+            long index = ((hash1 + i * hash2) & Long.MAX_VALUE) % bitSize;
+            bits[(int) (index >>> 6)] |= 1L << index;
+        }
+    }
+
+    // MurmurHash3 fmix64 finalizer
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb93fe53e88cbL;
+        value ^= value >>> 33;
+        return value;
+    }
+}
@@ -0,0 +1,91 @@
+package com.order.order_service.utils;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.order.order_service.enums.ReservationStatusEnum;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reservation outcome per product id, kept as status ordinals in a {@link LongIntHashMap} so that matching an
+ * order's lines against a product-service response neither boxes ids nor allocates a record per product. When the
+ * response says which order each entry answers, the outcomes are also kept per order, since a call merging several
+ * orders may hold the same product more than once.
+ * Not thread-safe.
+ */
+@JsonDeserialize(using = ReservationResultsDeserializer.class)
+public final class ReservationResults {
+
+    private static final ReservationStatusEnum[] STATUSES = ReservationStatusEnum.values();
+
+    private final LongIntHashMap statuses;
+    private Map<Long, ReservationResults> ordersResults;
+
+    public ReservationResults() {
+        this(16);
+    }
+
+    public ReservationResults(int expectedSize) {
+        this.statuses = new LongIntHashMap(expectedSize);
+    }
+
+    public void put(long productId, ReservationStatusEnum status) {
+        statuses.put(productId, status.ordinal());
+    }
+
+    /**
+     * Also visible by product id alone, where the last order put wins if several orders share the product.
+     */
+    public void put(long orderId, long productId, ReservationStatusEnum status) {
+        put(productId, status);
+        if (ordersResults == null) {
+            ordersResults = new HashMap<>();
+        }
+        ordersResults.computeIfAbsent(orderId, id -> new ReservationResults(4)).put(productId, status);
+    }
+
+    /**
+     * The outcomes for one order of the request. A response without order ids answers a single order, so all of
+     * it is returned.
+     */
+    public ReservationResults forOrder(long orderId) {
+        if (ordersResults == null) {
+            return this;
+        }
+        ReservationResults orderResults = ordersResults.get(orderId);
+        return orderResults != null ? orderResults : new ReservationResults(0);
+    }
+
+    public void putAll(ReservationResults reservationResults) {
+        reservationResults.statuses.forEach(statuses::put);
+    }
+
+    /**
+     * The status product-service answered for the product, or null when it wasn't part of the response.
+     */
+    public ReservationStatusEnum get(long productId) {
+        int ordinal = statuses.get(productId, -1);
+        return ordinal >= 0 ? STATUSES[ordinal] : null;
+    }
+
+    public boolean isReserved(long productId) {
+        return statuses.get(productId, -1) == ReservationStatusEnum.RESERVED.ordinal();
+    }
+
+    public int size() {
+        return statuses.size();
+    }
+
+    public boolean isEmpty() {
+        return statuses.isEmpty();
+    }
+
+    public void forEach(ReservationConsumer consumer) {
+        statuses.forEach((productId, ordinal) -> consumer.accept(productId, STATUSES[ordinal]));
+    }
+
+    @FunctionalInterface
+    public interface ReservationConsumer {
+        void accept(long productId, ReservationStatusEnum status);
+    }
+}
@@ -0,0 +1,81 @@
+package com.order.order_service.utils;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.order.order_service.enums.ReservationStatusEnum;
+
+import java.io.IOException;
+
+/**
+ * Reads product-service's reservation response, an array like
+ * {@code [{"orderId":7,"id":1,"quantity":2,"status":"RESERVED"}]}, straight from the token stream into
+ * {@link ReservationResults}. Only the order id, product id and status are kept; the order id is optional, and
+ * entries missing either of the others are skipped.
+ */
+public class ReservationResultsDeserializer extends StdDeserializer<ReservationResults> {
+
+    public ReservationResultsDeserializer() {
+        super(ReservationResults.class);
+    }
+
+    @Override
+    public ReservationResults deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+        if (!parser.isExpectedStartArrayToken()) {
+            return (ReservationResults) context.handleUnexpectedToken(ReservationResults.class, parser);
+        }
+
+        ReservationResults reservationResults = new ReservationResults();
+        for (JsonToken token = parser.nextToken(); token != JsonToken.END_ARRAY; token = parser.nextToken()) {
+            if (token != JsonToken.START_OBJECT) {
+                return (ReservationResults) context.handleUnexpectedToken(ReservationResults.class, parser);
+            }
+            readReservation(parser, context, reservationResults);
+        }
+        return reservationResults;
+    }
+
+    private static void readReservation(JsonParser parser, DeserializationContext context, ReservationResults reservationResults) throws IOException {
+        long orderId = 0;
+        boolean hasOrderId = false;
+        long productId = 0;
+        boolean hasProductId = false;
+        ReservationStatusEnum status = null;
+
+        for (JsonToken token = parser.nextToken(); token == JsonToken.FIELD_NAME; token = parser.nextToken()) {
+            String field = parser.currentName();
+            JsonToken valueToken = parser.nextToken();
+
+            if ("orderId".equals(field) && valueToken == JsonToken.VALUE_NUMBER_INT) {
+                orderId = parser.getLongValue();
+                hasOrderId = true;
+            } else if ("id".equals(field) && valueToken == JsonToken.VALUE_NUMBER_INT) {
+                productId = parser.getLongValue();
+                hasProductId = true;
+            } else if ("status".equals(field) && valueToken == JsonToken.VALUE_STRING) {
+                status = parseStatus(parser, context);
+            } else {
+                parser.skipChildren();
+            }
+        }
+
+        if (!hasProductId || status == null) {
+            return;
+        }
+        if (hasOrderId) {
+            reservationResults.put(orderId, productId, status);
+        } else {
+            reservationResults.put(productId, status);
+        }
+    }
+
+    private static ReservationStatusEnum parseStatus(JsonParser parser, DeserializationContext context) throws IOException {
+        String name = parser.getText();
+        try {
+            return ReservationStatusEnum.valueOf(name);
+        } catch (IllegalArgumentException e) {
+            throw context.weirdStringException(name, ReservationStatusEnum.class, "not a reservation status");
+        }
+    }
+}
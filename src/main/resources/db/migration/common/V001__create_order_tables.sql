@@ -0,0 +1,37 @@
+CREATE SEQUENCE IF NOT EXISTS order_entity_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS order_item_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS outbox_message_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS order_entity (
+    id              BIGINT NOT NULL,
+    user_id         BIGINT,
+    status          SMALLINT,
+    saga_status     VARCHAR(32),
+    saga_updated_at TIMESTAMP(6),
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE IF NOT EXISTS order_item (
+    id              BIGINT NOT NULL,
+    product_id      BIGINT,
+    quantity        INTEGER,
+    order_entity_id BIGINT,
+    PRIMARY KEY (id),
+    CONSTRAINT fk_order_item_order_entity FOREIGN KEY (order_entity_id) REFERENCES order_entity (id)
+);
+
+CREATE TABLE IF NOT EXISTS outbox_message (
+    id              BIGINT NOT NULL,
+    event_type      VARCHAR(255),
+    payload_type    VARCHAR(255),
+    exchange        VARCHAR(255),
+    routing_key     VARCHAR(255),
+    payload         TEXT,
+    created_at      TIMESTAMP(6),
+    processed       BOOLEAN NOT NULL,
+    retry_count     INTEGER NOT NULL,
+    next_attempt_at TIMESTAMP(6),
+    lease_owner     VARCHAR(255),
+    lease_until     TIMESTAMP(6),
+    PRIMARY KEY (id)
+);
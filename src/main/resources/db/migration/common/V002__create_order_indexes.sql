@@ -0,0 +1,5 @@
+-- Per-user listings and keyset pages: the id is part of the key, so the page id query never touches the table
+CREATE INDEX IF NOT EXISTS idx_order_entity_user ON order_entity (user_id, id);
+
+-- Saga recovery looks up stale orders by saga status and age
+CREATE INDEX IF NOT EXISTS idx_order_entity_saga ON order_entity (saga_status, saga_updated_at);
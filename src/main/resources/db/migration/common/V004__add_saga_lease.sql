@@ -0,0 +1,2 @@
+-- Set while a saga runner releases an order's reservations, so that no other runner claims the same order meanwhile
+ALTER TABLE order_entity ADD COLUMN IF NOT EXISTS saga_lease_until TIMESTAMP(6);
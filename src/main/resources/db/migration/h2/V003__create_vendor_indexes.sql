@@ -0,0 +1,4 @@
+-- order_item.order_entity_id is already indexed: H2 creates an index for every foreign key
+
+-- H2 has no partial indexes. With processed leading, the unprocessed rows are still one contiguous range
+CREATE INDEX IF NOT EXISTS idx_outbox_message_due ON outbox_message (processed, next_attempt_at, retry_count);
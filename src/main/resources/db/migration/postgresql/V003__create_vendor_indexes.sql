@@ -0,0 +1,5 @@
+-- PostgreSQL doesn't index foreign key columns, and items are always loaded by their order
+CREATE INDEX IF NOT EXISTS idx_order_item_order ON order_item (order_entity_id);
+
+-- Only unprocessed rows are ever polled, so the index only holds the backlog and not the whole history
+CREATE INDEX IF NOT EXISTS idx_outbox_message_due ON outbox_message (next_attempt_at, retry_count) WHERE processed = false;
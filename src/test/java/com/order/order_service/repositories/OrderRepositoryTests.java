@@ -0,0 +1,77 @@
+package com.order.order_service.repositories;
+
+import com.order.order_service.dtos.OrderDTO;
+import com.order.order_service.enums.OrderStatusEnum;
+import com.order.order_service.enums.SagaStatusEnum;
+import com.order.order_service.models.OrderEntity;
+import com.order.order_service.models.OrderItem;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Counts the statements each listing needs for 1,000 orders with two items each, so that a lazy item list
+ * walked per order shows up as a failure instead of 1,001 queries.
+ */
+@DataJpaTest
+@TestPropertySource(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class OrderRepositoryTests {
+
+    private static final int ORDERS = 1000;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        List<OrderEntity> orders = new ArrayList<>();
+        for (int i = 0; i < ORDERS; i++) {
+            OrderEntity order = new OrderEntity(null, (long) (i % 10), OrderStatusEnum.PENDING);
+            order.getOrderItemList().add(new OrderItem(1L, 1, order));
+            order.getOrderItemList().add(new OrderItem(2L, 2, order));
+            orders.add(order);
+        }
+        orderRepository.saveAll(orders);
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void listingAllOrdersUsesOneStatement() {
+        List<OrderDTO> orders = orderRepository.findAll().stream().map(OrderDTO::new).toList();
+
+        assertEquals(ORDERS, orders.size());
+        assertTrue(orders.stream().allMatch(order -> order.getOrderItems().size() == 2));
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void pageUsesOneStatementForIdsAndOneForOrders() {
+        List<Long> ids = orderRepository.findPageIdsAfter(SagaStatusEnum.CONFIRMED, 0L, Limit.of(ORDERS));
+        List<OrderDTO> orders = orderRepository.findWithItemsByIdIn(ids).stream().map(OrderDTO::new).toList();
+
+        assertEquals(ORDERS, orders.size());
+        assertTrue(orders.stream().allMatch(order -> order.getOrderItems().size() == 2));
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+}
@@ -0,0 +1,182 @@
+package com.order.order_service.repositories;
+
+import com.order.order_service.models.OutboxMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The claim and settle queries two publishers run against each other: SKIP LOCKED while a page is being claimed,
+ * the lease once it is, and settles that only touch rows the caller still holds.
+ */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OutboxMessageRepositoryTests {
+
+    private static final int MAX_RETRIES = 5;
+
+    @Autowired
+    private OutboxMessageRepository outboxMessageRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @AfterEach
+    void tearDown() {
+        outboxMessageRepository.deleteAll();
+    }
+
+    @Test
+    void concurrentClaimsNeverReturnTheSameRow() throws Exception {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            ids.add(saveDueMessage().getId());
+        }
+
+        CountDownLatch firstClaimed = new CountDownLatch(1);
+        CountDownLatch firstMayCommit = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<List<Long>> first = executor.submit(() -> transactionTemplate.execute(status -> {
+            List<Long> claimed = claim("publisher-a", 3);
+            firstClaimed.countDown();
+            awaitQuietly(firstMayCommit);
+            return claimed;
+        }));
+
+        try {
+            assertTrue(firstClaimed.await(10, TimeUnit.SECONDS));
+
+            // The first claim still holds its row locks, so this one skips them instead of waiting. H2 stops at the
+            // first locked row when it walks the due index, where PostgreSQL returns the rows behind it
+            List<Long> second = transactionTemplate.execute(status -> claim("publisher-b", 10));
+            firstMayCommit.countDown();
+            List<Long> firstIds = first.get(10, TimeUnit.SECONDS);
+            assertEquals(ids.subList(0, 3), firstIds);
+
+            // Once committed, the leases keep claimed rows away from later publishers
+            List<Long> third = transactionTemplate.execute(status -> claim("publisher-c", 10));
+            assertEquals(List.of(), transactionTemplate.execute(status -> claim("publisher-d", 10)));
+
+            List<Long> allClaimed = new ArrayList<>(firstIds);
+            allClaimed.addAll(second);
+            allClaimed.addAll(third);
+            assertEquals(ids, allClaimed.stream().sorted().toList());
+        } finally {
+            firstMayCommit.countDown();
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void expiredLeasesCanBeClaimedAgain() {
+        LocalDateTime now = LocalDateTime.now();
+        OutboxMessage expired = saveLeasedMessage("publisher-a", now.minusSeconds(1));
+        OutboxMessage held = saveLeasedMessage("publisher-a", now.plusMinutes(1));
+
+        List<OutboxMessage> byIds = transactionTemplate.execute(status -> outboxMessageRepository
+                .findClaimableMessagesByIds(MAX_RETRIES, List.of(expired.getId(), held.getId()), LocalDateTime.now()));
+        assertEquals(List.of(expired.getId()), byIds.stream().map(OutboxMessage::getId).toList());
+
+        assertEquals(List.of(expired.getId()), transactionTemplate.execute(status -> claim("publisher-b", 10)));
+        assertEquals("publisher-b", reload(expired).getLeaseOwner());
+        assertEquals("publisher-a", reload(held).getLeaseOwner());
+    }
+
+    @Test
+    void settlesOnlyRowsTheCallerStillOwns() {
+        LocalDateTime now = LocalDateTime.now();
+        OutboxMessage taken = saveLeasedMessage("publisher-a", now.minusSeconds(1));
+        OutboxMessage owned = saveLeasedMessage("publisher-a", now.plusMinutes(1));
+        assertEquals(List.of(taken.getId()), transactionTemplate.execute(status -> claim("publisher-b", 10)));
+
+        List<Long> ids = List.of(taken.getId(), owned.getId());
+        LocalDateTime nextAttemptAt = now.plusMinutes(5);
+
+        // publisher-a lost the first row to publisher-b when its lease expired
+        assertEquals(0, scheduleRetry(ids.subList(0, 1), "publisher-a", nextAttemptAt));
+        assertEquals(1, markProcessed(ids, "publisher-a"));
+
+        OutboxMessage stillTaken = reload(taken);
+        assertFalse(stillTaken.isProcessed());
+        assertEquals(0, stillTaken.getRetryCount());
+        assertEquals("publisher-b", stillTaken.getLeaseOwner());
+
+        OutboxMessage settled = reload(owned);
+        assertTrue(settled.isProcessed());
+        assertNull(settled.getLeaseOwner());
+        assertNull(settled.getLeaseUntil());
+
+        assertEquals(1, scheduleRetry(ids, "publisher-b", nextAttemptAt));
+        OutboxMessage retried = reload(taken);
+        assertEquals(1, retried.getRetryCount());
+        assertNull(retried.getLeaseOwner());
+        assertFalse(retried.getNextAttemptAt().isBefore(nextAttemptAt.minusNanos(1_000)));
+    }
+
+    // What a publisher does per page: pick claimable rows with SKIP LOCKED, then lease them
+    private List<Long> claim(String owner, int limit) {
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> ids = outboxMessageRepository.findClaimableMessages(MAX_RETRIES, 0L, now, limit).stream()
+                .map(OutboxMessage::getId)
+                .toList();
+        if (!ids.isEmpty()) {
+            outboxMessageRepository.claimMessages(ids, owner, now.plusMinutes(1));
+        }
+        return ids;
+    }
+
+    private int markProcessed(List<Long> ids, String owner) {
+        Integer updated = transactionTemplate.execute(status -> outboxMessageRepository.markProcessed(ids, owner));
+        return updated;
+    }
+
+    private int scheduleRetry(List<Long> ids, String owner, LocalDateTime nextAttemptAt) {
+        Integer updated = transactionTemplate.execute(status -> outboxMessageRepository.scheduleRetry(ids, owner, nextAttemptAt));
+        return updated;
+    }
+
+    private OutboxMessage reload(OutboxMessage message) {
+        return outboxMessageRepository.findById(message.getId()).orElseThrow();
+    }
+
+    private OutboxMessage saveLeasedMessage(String owner, LocalDateTime leaseUntil) {
+        OutboxMessage message = newDueMessage();
+        message.setLeaseOwner(owner);
+        message.setLeaseUntil(leaseUntil);
+        return outboxMessageRepository.save(message);
+    }
+
+    private OutboxMessage saveDueMessage() {
+        return outboxMessageRepository.save(newDueMessage());
+    }
+
+    private static OutboxMessage newDueMessage() {
+        LocalDateTime now = LocalDateTime.now();
+        OutboxMessage message = new OutboxMessage("ORDER_CREATED", "{}", "order.exchange", "order.created", now, false, 0);
+        message.setNextAttemptAt(now.minusSeconds(1));
+        return message;
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
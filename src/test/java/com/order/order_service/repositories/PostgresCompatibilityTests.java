@@ -0,0 +1,75 @@
+package com.order.order_service.repositories;
+
+import com.order.order_service.enums.OrderStatusEnum;
+import com.order.order_service.enums.SagaStatusEnum;
+import com.order.order_service.models.OrderEntity;
+import com.order.order_service.models.OrderItem;
+import com.order.order_service.models.OutboxMessage;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Offline stand-in for PostgreSQL: in-process H2 in PostgreSQL mode, with the migration scripts and schema
+ * validation the prod profile uses, running the native and keyset queries. Embedded PostgreSQL needs downloaded
+ * binaries and refuses to run as root, so it isn't usable in CI here.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:pgcompat;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH"
+})
+class PostgresCompatibilityTests {
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OutboxMessageRepository outboxMessageRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    void claimsDueOutboxMessagesWithSkipLocked() {
+        LocalDateTime now = LocalDateTime.now();
+        OutboxMessage due = new OutboxMessage("ORDER_CREATED", "{}", "order.exchange", "order.created", now, false, 0);
+        due.setNextAttemptAt(now.minusSeconds(1));
+        OutboxMessage later = new OutboxMessage("ORDER_CREATED", "{}", "order.exchange", "order.created", now, false, 0);
+        later.setNextAttemptAt(now.plusMinutes(1));
+        outboxMessageRepository.saveAll(List.of(due, later));
+        entityManager.flush();
+
+        List<OutboxMessage> claimable = outboxMessageRepository.findClaimableMessages(5, 0L, now, 10);
+
+        assertEquals(List.of(due.getId()), claimable.stream().map(OutboxMessage::getId).toList());
+    }
+
+    @Test
+    void pagesOrdersAndFindsStaleSagas() {
+        for (int i = 0; i < 5; i++) {
+            OrderEntity order = new OrderEntity(null, 7L, OrderStatusEnum.PENDING);
+            order.addOrderItem(new OrderItem(1L, 1, order));
+            orderRepository.save(order);
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        List<Long> firstPage = orderRepository.findPageIdsByUserIdAfter(7L, SagaStatusEnum.CONFIRMED, 0L, Limit.of(3));
+        List<Long> secondPage = orderRepository.findPageIdsByUserIdAfter(7L, SagaStatusEnum.CONFIRMED, firstPage.get(2), Limit.of(3));
+
+        assertEquals(3, firstPage.size());
+        assertEquals(2, secondPage.size());
+        assertEquals(5, orderRepository.findWithItemsByIdIn(firstPage).size() + orderRepository.findWithItemsByIdIn(secondPage).size());
+        assertEquals(5, orderRepository.findSagaIds(SagaStatusEnum.CONFIRMED, LocalDateTime.now().plusSeconds(1), Limit.of(10)).size());
+    }
+}
@@ -0,0 +1,121 @@
+package com.order.order_service.repositories;
+
+import com.order.order_service.enums.SagaStatusEnum;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs EXPLAIN on H2 for the SQL the hot repository queries actually send, against the schema created by the
+ * db/migration scripts, so that a dropped or mismatched index, or a query that no longer fits its index, fails
+ * here instead of turning into a table scan. The SQL is captured from Hibernate and explained with the same
+ * parameters bound.
+ */
+@DataJpaTest
+@TestPropertySource(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector=" +
+        "com.order.order_service.repositories.SchemaIndexTests$RecordingStatementInspector")
+class SchemaIndexTests {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2026, 1, 1, 0, 0);
+    private static final String CONFIRMED = SagaStatusEnum.CONFIRMED.name();
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    @Autowired
+    private OutboxMessageRepository outboxMessageRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void ordersByUserUseTheUserIndex() {
+        assertUses("IDX_ORDER_ENTITY_USER",
+                capture(() -> orderRepository.findByUserIdAndSagaStatus(1L, SagaStatusEnum.CONFIRMED)),
+                1L, CONFIRMED);
+        assertUses("IDX_ORDER_ENTITY_USER",
+                capture(() -> orderRepository.findPageIdsByUserIdAfter(1L, SagaStatusEnum.CONFIRMED, 100L, Limit.of(10))),
+                1L, CONFIRMED, 100L, 10);
+    }
+
+    @Test
+    void itemsByOrderUseAnIndex() {
+        // H2 indexes the foreign key itself; the named index only exists on PostgreSQL
+        assertNoTableScan("ORDER_ITEM", capture(() -> orderItemRepository.findByOrderEntityId(1L)), 1L);
+        assertNoTableScan("ORDER_ITEM",
+                capture(() -> orderRepository.findByUserIdAndSagaStatus(1L, SagaStatusEnum.CONFIRMED)),
+                1L, CONFIRMED);
+    }
+
+    @Test
+    void confirmedPagesUseAnIndex() {
+        // H2 picks the saga index for the status and sorts the matching ids
+        assertNoTableScan("ORDER_ENTITY",
+                capture(() -> orderRepository.findPageIdsAfter(SagaStatusEnum.CONFIRMED, 100L, Limit.of(10))),
+                CONFIRMED, 100L, 10);
+    }
+
+    @Test
+    void claimableOutboxMessagesUseTheDueIndex() {
+        // Named parameters of the native query are sent in the order they appear: now, maxRetries, afterId, now, limit
+        assertUses("IDX_OUTBOX_MESSAGE_DUE",
+                capture(() -> outboxMessageRepository.findClaimableMessages(5, 0L, NOW, 10)),
+                Timestamp.valueOf(NOW), 5, 0L, Timestamp.valueOf(NOW), 10);
+    }
+
+    @Test
+    void staleSagasUseTheSagaIndex() {
+        assertUses("IDX_ORDER_ENTITY_SAGA",
+                capture(() -> orderRepository.findSagaIds(SagaStatusEnum.PENDING_STOCK, NOW, Limit.of(10))),
+                SagaStatusEnum.PENDING_STOCK.name(), Timestamp.valueOf(NOW), 10);
+    }
+
+    // The tables are empty, so a call sends only its own query and no follow-up loads
+    private static String capture(Runnable query) {
+        RecordingStatementInspector.STATEMENTS.clear();
+        query.run();
+        List<String> statements = RecordingStatementInspector.STATEMENTS;
+        assertEquals(1, statements.size(), () -> "Expected a single statement, got " + statements);
+        return statements.get(0);
+    }
+
+    private void assertUses(String index, String query, Object... args) {
+        String plan = explain(query, args);
+        assertTrue(plan.contains(index), () -> "Expected " + index + " in plan:\n" + plan);
+    }
+
+    private void assertNoTableScan(String table, String query, Object... args) {
+        String plan = explain(query, args);
+        assertFalse(plan.contains(table + ".TABLESCAN"), () -> "Expected no scan of " + table + " in plan:\n" + plan);
+    }
+
+    private String explain(String query, Object... args) {
+        return jdbcTemplate.queryForObject("EXPLAIN " + query, String.class, args).toUpperCase();
+    }
+
+    public static class RecordingStatementInspector implements StatementInspector {
+        static final List<String> STATEMENTS = new ArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql);
+            return sql;
+        }
+    }
+}
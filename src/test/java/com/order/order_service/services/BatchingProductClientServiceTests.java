@@ -0,0 +1,269 @@
+package com.order.order_service.services;
+
+import com.order.order_service.dtos.ProductQuantityRecord;
+import com.order.order_service.dtos.ProductRecord;
+import com.order.order_service.dtos.ReservationRequestRecord;
+import com.order.order_service.enums.ReservationStatusEnum;
+import com.order.order_service.exceptions.ProductServiceException;
+import com.order.order_service.models.OrderItem;
+import com.order.order_service.services.implementations.BatchingProductClientServiceImplementation;
+import com.order.order_service.utils.LongIntHashMap;
+import com.order.order_service.utils.ReservationResults;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Drives the reservation batcher from several threads against a recording product-service client.
+ */
+class BatchingProductClientServiceTests {
+
+    private final RecordingProductClientService remote = new RecordingProductClientService();
+    private final ExecutorService callers = Executors.newCachedThreadPool();
+    private final AtomicLong orderIds = new AtomicLong();
+
+    private BatchingProductClientServiceImplementation batchingClient(long windowMs, int maxBatchSize) {
+        BatchingProductClientServiceImplementation batchingClient = new BatchingProductClientServiceImplementation();
+        ReflectionTestUtils.setField(batchingClient, "productClientService", remote);
+        ReflectionTestUtils.setField(batchingClient, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(batchingClient, "windowMs", windowMs);
+        ReflectionTestUtils.setField(batchingClient, "maxBatchSize", maxBatchSize);
+        batchingClient.initBatchers();
+        return batchingClient;
+    }
+
+    @AfterEach
+    void tearDown() {
+        callers.shutdownNow();
+    }
+
+    @Test
+    void sendsALoneCallerWhenTheWindowCloses() throws Exception {
+        BatchingProductClientServiceImplementation batchingClient = batchingClient(200, 50);
+
+        long start = System.nanoTime();
+        ReservationResults reservations = batchingClient.reserveProducts(orderIds.incrementAndGet(), lines(1L));
+
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(200));
+        assertEquals(Set.of(1L), productIds(reservations));
+        assertEquals(1, remote.calls.size());
+    }
+
+    @Test
+    void sendsAsSoonAsTheBatchIsFull() throws Exception {
+        BatchingProductClientServiceImplementation batchingClient = batchingClient(60000, 3);
+
+        List<Future<ReservationResults>> results = List.of(
+                reserve(batchingClient, 1L), reserve(batchingClient, 2L), reserve(batchingClient, 3L));
+
+        for (Future<ReservationResults> result : results) {
+            result.get(10, TimeUnit.SECONDS);
+        }
+        assertEquals(1, remote.calls.size());
+        assertEquals(Set.of(1L, 2L, 3L), productIds(remote.calls.get(0)));
+    }
+
+    @Test
+    void givesEachCallerOnlyItsOwnProducts() throws Exception {
+        BatchingProductClientServiceImplementation batchingClient = batchingClient(60000, 3);
+
+        Future<ReservationResults> first = reserve(batchingClient, 1L, 2L);
+        Future<ReservationResults> second = reserve(batchingClient, 3L);
+        Future<ReservationResults> third = reserve(batchingClient, 4L, 5L);
+
+        assertEquals(Set.of(1L, 2L), productIds(first.get(10, TimeUnit.SECONDS)));
+        assertEquals(Set.of(3L), productIds(second.get(10, TimeUnit.SECONDS)));
+        assertEquals(Set.of(4L, 5L), productIds(third.get(10, TimeUnit.SECONDS)));
+        assertEquals(1, remote.calls.size());
+        // Merged, but every request still carries the order it reserves for
+        assertEquals(3, remote.calls.get(0).stream().map(ReservationRequestRecord::orderId).distinct().count());
+    }
+
+    @Test
+    void mergesOrdersForTheSameProductsAndSplitsTheResultsByOrder() throws Exception {
+        BatchingProductClientServiceImplementation batchingClient = batchingClient(60000, 2);
+        remote.stock.put(1L, 1);
+
+        Future<ReservationResults> first = reserve(batchingClient, 1L);
+        awaitOpenBatch(batchingClient);
+        Future<ReservationResults> overlapping = reserve(batchingClient, 1L, 2L);
+
+        // One unit of product 1: the first order in the call gets it, the second is told there is no stock
+        ReservationResults firstReservations = first.get(10, TimeUnit.SECONDS);
+        ReservationResults overlappingReservations = overlapping.get(10, TimeUnit.SECONDS);
+        assertEquals(Set.of(1L), productIds(firstReservations));
+        assertEquals(ReservationStatusEnum.RESERVED, firstReservations.get(1L));
+        assertEquals(Set.of(1L, 2L), productIds(overlappingReservations));
+        assertEquals(ReservationStatusEnum.NO_STOCK, overlappingReservations.get(1L));
+        assertEquals(ReservationStatusEnum.RESERVED, overlappingReservations.get(2L));
+
+        assertEquals(1, remote.calls.size());
+        assertEquals(2, remote.calls.get(0).size());
+    }
+
+    @Test
+    void startsANewBatchWhenAnOrderAsksForTheSameProductAgain() throws Exception {
+        BatchingProductClientServiceImplementation batchingClient = batchingClient(60000, 2);
+        long orderId = orderIds.incrementAndGet();
+
+        Future<ReservationResults> first = callers.submit(() -> batchingClient.reserveProducts(orderId, lines(1L)));
+        awaitOpenBatch(batchingClient);
+        Future<ReservationResults> again = callers.submit(() -> batchingClient.reserveProducts(orderId, lines(1L, 2L)));
+
+        // The second request closes the first batch early, so it is sent without waiting for the window
+        assertEquals(Set.of(1L), productIds(first.get(10, TimeUnit.SECONDS)));
+        assertEquals(Set.of(1L), productIds(remote.calls.get(0)));
+
+        // Another order for the same product fills the second batch
+        batchingClient.reserveProducts(orderIds.incrementAndGet(), lines(1L));
+        assertEquals(Set.of(1L, 2L), productIds(again.get(10, TimeUnit.SECONDS)));
+        assertEquals(2, remote.calls.get(1).size());
+    }
+
+    @Test
+    void failsEveryCallerOfAFailedBatch() throws Exception {
+        BatchingProductClientServiceImplementation batchingClient = batchingClient(60000, 3);
+        remote.failure = new ProductServiceException("product-service unavailable");
+
+        List<Future<ReservationResults>> results = List.of(
+                reserve(batchingClient, 1L), reserve(batchingClient, 2L), reserve(batchingClient, 3L));
+
+        for (Future<ReservationResults> result : results) {
+            ExecutionException e = assertThrows(ExecutionException.class, () -> result.get(10, TimeUnit.SECONDS));
+            assertInstanceOf(ProductServiceException.class, e.getCause());
+        }
+        assertEquals(1, remote.calls.size());
+    }
+
+    @Test
+    void interruptedLeaderStillSendsTheBatchForItsFollowers() throws Exception {
+        BatchingProductClientServiceImplementation batchingClient = batchingClient(60000, 50);
+        CompletableFuture<Thread> leaderThread = new CompletableFuture<>();
+        CompletableFuture<Boolean> leaderInterrupted = new CompletableFuture<>();
+
+        Future<ReservationResults> leader = callers.submit(() -> {
+            leaderThread.complete(Thread.currentThread());
+            ReservationResults reservations = batchingClient.reserveProducts(orderIds.incrementAndGet(), lines(1L));
+            leaderInterrupted.complete(Thread.currentThread().isInterrupted());
+            return reservations;
+        });
+        awaitOpenBatch(batchingClient);
+        Future<ReservationResults> follower = reserve(batchingClient, 2L);
+        awaitCallers(batchingClient, 2);
+
+        leaderThread.get(10, TimeUnit.SECONDS).interrupt();
+
+        assertEquals(Set.of(1L), productIds(leader.get(10, TimeUnit.SECONDS)));
+        assertEquals(Set.of(2L), productIds(follower.get(10, TimeUnit.SECONDS)));
+        assertTrue(leaderInterrupted.get(10, TimeUnit.SECONDS));
+        assertEquals(1, remote.calls.size());
+        assertFalse(remote.interruptedDuringCall);
+    }
+
+    private Future<ReservationResults> reserve(BatchingProductClientServiceImplementation batchingClient, Long... productIds) {
+        return callers.submit(() -> batchingClient.reserveProducts(orderIds.incrementAndGet(), lines(productIds)));
+    }
+
+    private static List<ProductQuantityRecord> lines(Long... productIds) {
+        return Arrays.stream(productIds).map(productId -> new ProductQuantityRecord(productId, 1)).toList();
+    }
+
+    private static Set<Long> productIds(List<ReservationRequestRecord> reservationRequestList) {
+        Set<Long> productIds = new HashSet<>();
+        reservationRequestList.forEach(reservationRequest -> reservationRequest.products().forEach(record -> productIds.add(record.id())));
+        return productIds;
+    }
+
+    private static Set<Long> productIds(ReservationResults reservations) {
+        Set<Long> productIds = new HashSet<>();
+        reservations.forEach((productId, status) -> productIds.add(productId));
+        return productIds;
+    }
+
+    private static void awaitOpenBatch(BatchingProductClientServiceImplementation batchingClient) throws InterruptedException {
+        awaitCallers(batchingClient, 1);
+    }
+
+    private static void awaitCallers(BatchingProductClientServiceImplementation batchingClient, int callers) throws InterruptedException {
+        Object batcher = ReflectionTestUtils.getField(batchingClient, "reservationBatcher");
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (System.nanoTime() < deadline) {
+            Object openBatch = ReflectionTestUtils.getField(batcher, "openBatch");
+            if (openBatch != null && (int) ReflectionTestUtils.getField(openBatch, "callers") >= callers) {
+                return;
+            }
+            Thread.sleep(5);
+        }
+        fail("Batch never reached " + callers + " callers");
+    }
+
+    private static final class RecordingProductClientService implements ProductClientService {
+
+        private final List<List<ReservationRequestRecord>> calls = new CopyOnWriteArrayList<>();
+        // Products without stock here have unlimited stock
+        private final Map<Long, Integer> stock = new ConcurrentHashMap<>();
+        private volatile ProductServiceException failure;
+        private volatile boolean interruptedDuringCall;
+
+        @Override
+        public ReservationResults reserveProducts(List<ReservationRequestRecord> reservationRequestList) throws ProductServiceException {
+            calls.add(List.copyOf(reservationRequestList));
+            interruptedDuringCall |= Thread.currentThread().isInterrupted();
+            if (failure != null) {
+                throw failure;
+            }
+
+            ReservationResults reservations = new ReservationResults();
+            for (ReservationRequestRecord reservationRequest : reservationRequestList) {
+                for (ProductQuantityRecord productQuantityRecord : reservationRequest.products()) {
+                    reservations.put(reservationRequest.orderId(), productQuantityRecord.id(), reserve(productQuantityRecord));
+                }
+            }
+            return reservations;
+        }
+
+        private ReservationStatusEnum reserve(ProductQuantityRecord productQuantityRecord) {
+            Integer available = stock.get(productQuantityRecord.id());
+            if (available == null) {
+                return ReservationStatusEnum.RESERVED;
+            }
+            if (available < productQuantityRecord.quantity()) {
+                return ReservationStatusEnum.NO_STOCK;
+            }
+            stock.put(productQuantityRecord.id(), available - productQuantityRecord.quantity());
+            return ReservationStatusEnum.RESERVED;
+        }
+
+        @Override
+        public void releaseReservations(Long orderId, List<ProductQuantityRecord> productQuantityRecordList) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void releaseReservationsDownTo(Long orderId, List<ProductQuantityRecord> productQuantityRecordList) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public LongIntHashMap getExistentProducts(List<ProductQuantityRecord> productQuantityRecordList) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void updateProducts(List<OrderItem> orderItemList, int factor) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Map<Long, ProductRecord> getProductDetails(Collection<Long> productIds) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
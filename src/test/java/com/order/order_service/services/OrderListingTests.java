@@ -0,0 +1,202 @@
+package com.order.order_service.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.order.order_service.dtos.OrderDTO;
+import com.order.order_service.dtos.OrderPageRecord;
+import com.order.order_service.enums.OrderStatusEnum;
+import com.order.order_service.enums.SagaStatusEnum;
+import com.order.order_service.exceptions.OrderException;
+import com.order.order_service.models.OrderEntity;
+import com.order.order_service.models.OrderItem;
+import com.order.order_service.repositories.OrderRepository;
+import com.order.order_service.stubs.StubServicesConfiguration;
+import com.order.order_service.utils.Constants;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Keyset pages and NDJSON streams on committed orders, with page and chunk sizes small enough to cross several.
+ */
+@DataJpaTest
+@Import(StubServicesConfiguration.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = {"order.page.default-size=2", "order.page.max-size=3", "order.stream.chunk-size=2"})
+class OrderListingTests {
+
+    private static final Long USER_ID = 1L;
+    private static final Long OTHER_USER_ID = 2L;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @AfterEach
+    void tearDown() {
+        orderRepository.deleteAll();
+    }
+
+    @Test
+    void pageSizeDefaultsIsCappedAndMustBePositive() throws Exception {
+        createOrders(USER_ID, 5);
+
+        assertEquals(2, orderService.getOrdersPage(null, null).getBody().orders().size());
+        assertEquals(3, orderService.getOrdersPage(null, 100).getBody().orders().size());
+        assertEquals(3, orderService.getOrdersPageByUserId(USER_ID, null, 100).getBody().orders().size());
+
+        for (int size : new int[]{0, -1}) {
+            OrderException e = assertThrows(OrderException.class, () -> orderService.getOrdersPage(null, size));
+            assertEquals(Constants.INV_PAGE_SIZE, e.getMessage());
+            assertThrows(OrderException.class, () -> orderService.getOrdersPageByUserId(USER_ID, null, size));
+        }
+    }
+
+    @Test
+    void nextCursorIsSetOnlyWhileMoreOrdersRemain() throws Exception {
+        List<Long> orderIds = createOrders(USER_ID, 5);
+
+        OrderPageRecord first = orderService.getOrdersPage(null, 2).getBody();
+        assertEquals(orderIds.subList(0, 2), ids(first));
+        assertEquals(orderIds.get(1), first.nextCursor());
+
+        OrderPageRecord second = orderService.getOrdersPage(first.nextCursor(), 2).getBody();
+        assertEquals(orderIds.subList(2, 4), ids(second));
+        assertEquals(orderIds.get(3), second.nextCursor());
+
+        OrderPageRecord last = orderService.getOrdersPage(second.nextCursor(), 2).getBody();
+        assertEquals(orderIds.subList(4, 5), ids(last));
+        assertNull(last.nextCursor());
+
+        // A last page that is exactly full has no cursor either
+        OrderPageRecord exact = orderService.getOrdersPage(orderIds.get(1), 3).getBody();
+        assertEquals(orderIds.subList(2, 5), ids(exact));
+        assertNull(exact.nextCursor());
+    }
+
+    @Test
+    void userPagesOnlyHoldThatUsersOrders() throws Exception {
+        List<Long> userOrderIds = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            userOrderIds.addAll(createOrders(USER_ID, 1));
+            createOrders(OTHER_USER_ID, 1);
+        }
+
+        List<Long> pagedIds = new ArrayList<>();
+        Long cursor = null;
+        do {
+            OrderPageRecord page = orderService.getOrdersPageByUserId(USER_ID, cursor, 3).getBody();
+            assertTrue(page.orders().stream().allMatch(order -> USER_ID.equals(order.getUserId())));
+            pagedIds.addAll(ids(page));
+            cursor = page.nextCursor();
+        } while (cursor != null);
+
+        assertEquals(userOrderIds, pagedIds);
+    }
+
+    @Test
+    void streamsOneJsonLinePerOrder() throws Exception {
+        List<Long> userOrderIds = createOrders(USER_ID, 3);
+        List<Long> otherOrderIds = createOrders(OTHER_USER_ID, 2);
+        List<Long> allOrderIds = new ArrayList<>(userOrderIds);
+        allOrderIds.addAll(otherOrderIds);
+
+        ByteArrayOutputStream allOrders = new ByteArrayOutputStream();
+        orderService.streamAllOrders(allOrders);
+        assertEquals(allOrderIds, ids(readNdjson(allOrders)));
+
+        ByteArrayOutputStream otherUserOrders = new ByteArrayOutputStream();
+        orderService.streamOrdersByUserId(OTHER_USER_ID, otherUserOrders);
+        List<OrderDTO> streamed = readNdjson(otherUserOrders);
+        assertEquals(otherOrderIds, ids(streamed));
+        assertTrue(streamed.stream().allMatch(order -> order.getOrderItems().size() == 2));
+
+        ByteArrayOutputStream noOrders = new ByteArrayOutputStream();
+        orderService.streamOrdersByUserId(3L, noOrders);
+        assertEquals(0, noOrders.size());
+    }
+
+    @Test
+    void leavesOutOrdersWhoseSagaHasNotConfirmed() throws Exception {
+        List<Long> confirmedIds = new ArrayList<>(createOrders(USER_ID, 1));
+        Long pendingId = createOrder(USER_ID, SagaStatusEnum.PENDING_STOCK);
+        confirmedIds.addAll(createOrders(USER_ID, 1));
+        Long compensatingId = createOrder(USER_ID, SagaStatusEnum.COMPENSATING);
+        confirmedIds.addAll(createOrders(USER_ID, 1));
+
+        OrderPageRecord first = orderService.getOrdersPage(null, 2).getBody();
+        assertEquals(confirmedIds.subList(0, 2), ids(first));
+        assertEquals(confirmedIds.subList(2, 3), ids(orderService.getOrdersPage(first.nextCursor(), 2).getBody()));
+        assertEquals(confirmedIds, ids(orderService.getOrdersPageByUserId(USER_ID, null, 3).getBody()));
+
+        ByteArrayOutputStream streamed = new ByteArrayOutputStream();
+        orderService.streamOrdersByUserId(USER_ID, streamed);
+        assertEquals(confirmedIds, ids(readNdjson(streamed)));
+
+        assertEquals(confirmedIds, orderService.getAllOrders().getBody().stream().map(OrderDTO::getId).sorted().toList());
+        for (Long hiddenId : List.of(pendingId, compensatingId)) {
+            assertThrows(OrderException.class, () -> orderService.getOrderById(hiddenId));
+        }
+    }
+
+    private List<OrderDTO> readNdjson(ByteArrayOutputStream outputStream) throws Exception {
+        String body = outputStream.toString(StandardCharsets.UTF_8);
+        assertTrue(body.endsWith("\n"));
+
+        List<OrderDTO> orders = new ArrayList<>();
+        for (String line : body.split("\n")) {
+            orders.add(objectMapper.readValue(line, OrderDTO.class));
+        }
+        return orders;
+    }
+
+    private List<Long> createOrders(Long userId, int count) {
+        return transactionTemplate.execute(status -> {
+            List<Long> orderIds = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                OrderEntity order = new OrderEntity(null, userId, OrderStatusEnum.PENDING);
+                order.getOrderItemList().add(new OrderItem(1L, 1, order));
+                order.getOrderItemList().add(new OrderItem(2L, 2, order));
+                orderIds.add(orderRepository.save(order).getId());
+            }
+            return orderIds;
+        });
+    }
+
+    private Long createOrder(Long userId, SagaStatusEnum sagaStatus) {
+        return transactionTemplate.execute(status -> {
+            OrderEntity order = new OrderEntity(null, userId, OrderStatusEnum.PENDING);
+            order.setSagaStatus(sagaStatus);
+            order.getOrderItemList().add(new OrderItem(1L, 1, order));
+            return orderRepository.save(order).getId();
+        });
+    }
+
+    private static List<Long> ids(OrderPageRecord page) {
+        return ids(page.orders());
+    }
+
+    private static List<Long> ids(List<OrderDTO> orders) {
+        return orders.stream().map(OrderDTO::getId).toList();
+    }
+}
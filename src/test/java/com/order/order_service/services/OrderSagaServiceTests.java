@@ -0,0 +1,244 @@
+package com.order.order_service.services;
+
+import com.order.order_service.dtos.ProductQuantityRecord;
+import com.order.order_service.enums.OrderStatusEnum;
+import com.order.order_service.enums.SagaStatusEnum;
+import com.order.order_service.models.OrderEntity;
+import com.order.order_service.models.OrderItem;
+import com.order.order_service.repositories.OrderRepository;
+import com.order.order_service.stubs.StubProductClientService;
+import com.order.order_service.stubs.StubServicesConfiguration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Saga state transitions and recovery on committed data. Timeouts are zero so that every order is stale as soon as
+ * it is stored; the tests decide when recovery runs.
+ */
+@DataJpaTest
+@Import(StubServicesConfiguration.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = {"order.saga.pending-timeout-ms=0", "order.saga.compensation-retry-delay-ms=0"})
+class OrderSagaServiceTests {
+
+    private static final Long PRODUCT_ID = 1L;
+
+    @Autowired
+    private OrderSagaService orderSagaService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private StubProductClientService productClientService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @AfterEach
+    void tearDown() {
+        ReflectionTestUtils.setField(orderSagaService, "compensationRetryDelayMs", 0L);
+        orderRepository.deleteAll();
+    }
+
+    @Test
+    void confirmsAPendingOrderOnlyOnce() throws Exception {
+        productClientService.setStock(PRODUCT_ID, 5);
+        Long orderId = reservedPendingOrder(2);
+
+        assertTrue(orderSagaService.confirmOrder(orderId));
+        assertFalse(orderSagaService.confirmOrder(orderId));
+        assertEquals(SagaStatusEnum.CONFIRMED, sagaStatus(orderId));
+
+        // A confirmed order is neither compensated nor picked up by recovery
+        orderSagaService.compensateOrder(orderId);
+        Thread.sleep(5);
+        orderSagaService.processPendingSagas();
+        assertEquals(SagaStatusEnum.CONFIRMED, sagaStatus(orderId));
+        assertEquals(3, productClientService.getStock(PRODUCT_ID));
+    }
+
+    @Test
+    void compensatingAPendingOrderReleasesItsLinesAndDeletesIt() throws Exception {
+        productClientService.setStock(PRODUCT_ID, 5);
+        Long orderId = reservedPendingOrder(2);
+
+        orderSagaService.compensateOrder(orderId);
+
+        assertFalse(orderRepository.existsById(orderId));
+        assertFalse(orderSagaService.confirmOrder(orderId));
+        assertEquals(5, productClientService.getStock(PRODUCT_ID));
+    }
+
+    @Test
+    void failedCompensationKeepsTheOrderCompensatingUntilARetrySucceeds() throws Exception {
+        productClientService.setStock(PRODUCT_ID, 5);
+        Long orderId = reservedPendingOrder(2);
+        productClientService.failReleases(1);
+
+        orderSagaService.compensateOrder(orderId);
+
+        assertEquals(SagaStatusEnum.COMPENSATING, sagaStatus(orderId));
+        assertFalse(orderSagaService.confirmOrder(orderId));
+        assertEquals(3, productClientService.getStock(PRODUCT_ID));
+
+        Thread.sleep(5);
+        orderSagaService.processPendingSagas();
+
+        assertFalse(orderRepository.existsById(orderId));
+        assertEquals(5, productClientService.getStock(PRODUCT_ID));
+    }
+
+    @Test
+    void recoversAnOrderLeftPendingAfterItsReservation() throws Exception {
+        productClientService.setStock(PRODUCT_ID, 5);
+        Long orderId = reservedPendingOrder(2);
+
+        Thread.sleep(5);
+        orderSagaService.processPendingSagas();
+
+        assertFalse(orderRepository.existsById(orderId));
+        assertEquals(5, productClientService.getStock(PRODUCT_ID));
+    }
+
+    @Test
+    void retriesCompensationOnlyAfterTheRetryDelay() throws Exception {
+        productClientService.setStock(PRODUCT_ID, 5);
+        Long orderId = reservedPendingOrder(2);
+        productClientService.failReleases(1);
+        orderSagaService.compensateOrder(orderId);
+        ReflectionTestUtils.setField(orderSagaService, "compensationRetryDelayMs", 60000L);
+
+        orderSagaService.processPendingSagas();
+
+        assertEquals(SagaStatusEnum.COMPENSATING, sagaStatus(orderId));
+        assertEquals(3, productClientService.getStock(PRODUCT_ID));
+    }
+
+    @Test
+    void concurrentRecoveryRunsClaimEachOrderOnce() throws Exception {
+        int orders = 20;
+        int recoveryRuns = 4;
+        productClientService.setStock(PRODUCT_ID, orders);
+        for (int i = 0; i < orders; i++) {
+            reservedPendingOrder(1);
+        }
+        int releaseCallsBefore = productClientService.getReleaseCalls();
+        Thread.sleep(5);
+
+        ExecutorService executor = Executors.newFixedThreadPool(recoveryRuns);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> runs = new ArrayList<>();
+        for (int i = 0; i < recoveryRuns; i++) {
+            runs.add(executor.submit(() -> {
+                start.await();
+                orderSagaService.processPendingSagas();
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> run : runs) {
+            run.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertEquals(0, orderRepository.count());
+        assertEquals(orders, productClientService.getReleaseCalls() - releaseCallsBefore);
+        assertEquals(orders, productClientService.getStock(PRODUCT_ID));
+    }
+
+    @Test
+    void recoveryNeverClaimsAnOrderWhoseReleaseIsInFlight() throws Exception {
+        productClientService.setStock(PRODUCT_ID, 5);
+        Long orderId = reservedPendingOrder(2);
+        CountDownLatch releaseWaiting = productClientService.holdReleases();
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<?> compensation = executor.submit(() -> {
+            orderSagaService.compensateOrder(orderId);
+            return null;
+        });
+        try {
+            assertTrue(releaseWaiting.await(10, TimeUnit.SECONDS));
+            int releaseCallsBefore = productClientService.getReleaseCalls();
+            Thread.sleep(5);
+
+            // With no retry delay, only the lease keeps these runs away from the order being released
+            orderSagaService.processPendingSagas();
+            orderSagaService.processPendingSagas();
+
+            assertEquals(releaseCallsBefore, productClientService.getReleaseCalls());
+            assertEquals(SagaStatusEnum.COMPENSATING, sagaStatus(orderId));
+        } finally {
+            productClientService.resumeReleases();
+            compensation.get(10, TimeUnit.SECONDS);
+            executor.shutdown();
+        }
+
+        assertFalse(orderRepository.existsById(orderId));
+        assertEquals(5, productClientService.getStock(PRODUCT_ID));
+    }
+
+    @Test
+    void confirmAndCompensateRacingLeaveOneOutcome() throws Exception {
+        productClientService.setStock(PRODUCT_ID, 5);
+        Long orderId = reservedPendingOrder(2);
+
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        Future<Boolean> confirmed = executor.submit(() -> {
+            start.await();
+            return orderSagaService.confirmOrder(orderId);
+        });
+        Future<?> compensated = executor.submit(() -> {
+            start.await();
+            orderSagaService.compensateOrder(orderId);
+            return null;
+        });
+        start.countDown();
+        compensated.get(30, TimeUnit.SECONDS);
+        boolean confirmWon = confirmed.get(30, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        if (confirmWon) {
+            assertEquals(SagaStatusEnum.CONFIRMED, sagaStatus(orderId));
+            assertEquals(3, productClientService.getStock(PRODUCT_ID));
+        } else {
+            assertFalse(orderRepository.existsById(orderId));
+            assertEquals(5, productClientService.getStock(PRODUCT_ID));
+        }
+    }
+
+    /**
+     * A PENDING_STOCK order with one line whose stock product-service already reserved, as left by a request that
+     * stopped right after its reservation.
+     */
+    private Long reservedPendingOrder(int quantity) throws Exception {
+        Long orderId = transactionTemplate.execute(status -> {
+            OrderEntity order = new OrderEntity(null, StubServicesConfiguration.USER_ID, OrderStatusEnum.PENDING);
+            order.setSagaStatus(SagaStatusEnum.PENDING_STOCK);
+            order.addOrderItemList(new OrderItem(PRODUCT_ID, quantity, order));
+            return orderRepository.save(order).getId();
+        });
+        productClientService.reserveProducts(orderId, List.of(new ProductQuantityRecord(PRODUCT_ID, quantity)));
+        return orderId;
+    }
+
+    private SagaStatusEnum sagaStatus(Long orderId) {
+        return orderRepository.findById(orderId).orElseThrow().getSagaStatus();
+    }
+}
@@ -0,0 +1,249 @@
+package com.order.order_service.services;
+
+import com.order.order_service.dtos.ErrorProductRecord;
+import com.order.order_service.dtos.NewOrderRecord;
+import com.order.order_service.dtos.OrderCreatedRecord;
+import com.order.order_service.dtos.OrderItemDTO;
+import com.order.order_service.dtos.OrderItemRecord;
+import com.order.order_service.dtos.OrderToPdfDTO;
+import com.order.order_service.dtos.ProductQuantityRecord;
+import com.order.order_service.dtos.ProductRecord;
+import com.order.order_service.enums.OrderStatusEnum;
+import com.order.order_service.enums.ProductErrorEnum;
+import com.order.order_service.enums.SagaStatusEnum;
+import com.order.order_service.exceptions.OrderException;
+import com.order.order_service.models.OrderItem;
+import com.order.order_service.repositories.OrderItemRepository;
+import com.order.order_service.repositories.OrderRepository;
+import com.order.order_service.stubs.RecordingOutboxMessageService;
+import com.order.order_service.stubs.StubProductClientService;
+import com.order.order_service.stubs.StubServicesConfiguration;
+import com.order.order_service.utils.Constants;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Order creation and item changes against the in-memory product-service. Runs without a test transaction, so every
+ * saga step commits on its own like in production.
+ */
+@DataJpaTest
+@Import(StubServicesConfiguration.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = "order.saga.compensation-retry-delay-ms=0")
+class OrderServiceTests {
+
+    private static final Long USER_ID = StubServicesConfiguration.USER_ID;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderItemService orderItemService;
+
+    @Autowired
+    private OrderSagaService orderSagaService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    @Autowired
+    private StubProductClientService productClientService;
+
+    @Autowired
+    private RecordingOutboxMessageService outboxMessageService;
+
+    @AfterEach
+    void tearDown() {
+        orderRepository.deleteAll();
+        outboxMessageService.reset();
+    }
+
+    @Test
+    void keepsOnlyTheReservedLinesOfANewOrder() throws Exception {
+        productClientService.setStock(1L, 5);
+        productClientService.setStock(2L, 0);
+
+        OrderCreatedRecord created = createOrder(line(1L, 2), line(2L, 1), line(3L, 1));
+
+        Long orderId = created.orderDTO().getId();
+        assertEquals(List.of(1L), created.orderDTO().getOrderItems().stream().map(OrderItemDTO::getProductId).toList());
+        assertEquals(List.of(new ErrorProductRecord(2L, ProductErrorEnum.NO_STOCK), new ErrorProductRecord(3L, ProductErrorEnum.NOT_FOUND)),
+                created.errorProductRecordList());
+        assertEquals(List.of(1L), orderItemRepository.findByOrderEntityId(orderId).stream().map(OrderItem::getProductId).toList());
+        assertEquals(SagaStatusEnum.CONFIRMED, orderRepository.findById(orderId).orElseThrow().getSagaStatus());
+        assertEquals(Map.of(1L, 2), productClientService.getReservations(orderId));
+        assertEquals(3, productClientService.getStock(1L));
+    }
+
+    @Test
+    void failedReservationDeletesTheOrderWithoutRestocking() {
+        productClientService.setStock(1L, 5);
+        productClientService.failNextReservation();
+
+        assertThrows(OrderException.class, () -> createOrder(line(1L, 2)));
+
+        assertEquals(0, orderRepository.count());
+        assertEquals(5, productClientService.getStock(1L));
+    }
+
+    @Test
+    void lostReservationResponseReleasesExactlyWhatWasReserved() {
+        productClientService.setStock(1L, 5);
+        productClientService.setStock(2L, 0);
+        productClientService.loseNextReservationResponse();
+
+        assertThrows(OrderException.class, () -> createOrder(line(1L, 2), line(2L, 1)));
+
+        assertEquals(0, orderRepository.count());
+        assertEquals(5, productClientService.getStock(1L));
+        assertEquals(0, productClientService.getStock(2L));
+    }
+
+    @Test
+    void failedReleaseIsRetriedFromTheStoredLines() throws Exception {
+        productClientService.setStock(1L, 5);
+        productClientService.loseNextReservationResponse();
+        productClientService.failReleases(1);
+
+        assertThrows(OrderException.class, () -> createOrder(line(1L, 2)));
+
+        Long orderId = orderRepository.findAll().get(0).getId();
+        assertEquals(SagaStatusEnum.COMPENSATING, orderRepository.findById(orderId).orElseThrow().getSagaStatus());
+        assertEquals(List.of(1L), orderItemRepository.findByOrderEntityId(orderId).stream().map(OrderItem::getProductId).toList());
+        assertEquals(3, productClientService.getStock(1L));
+
+        Thread.sleep(5);
+        orderSagaService.processPendingSagas();
+
+        assertEquals(0, orderRepository.count());
+        assertEquals(5, productClientService.getStock(1L));
+    }
+
+    @Test
+    void addingAnItemReservesItUnderTheOrder() throws Exception {
+        productClientService.setStock(1L, 5);
+        productClientService.setStock(2L, 3);
+        productClientService.setStock(4L, 0);
+        Long orderId = createOrder(line(1L, 1)).orderDTO().getId();
+
+        orderItemService.addOrderItem(USER_ID, orderId, line(2L, 2));
+
+        assertEquals(Map.of(1L, 1, 2L, 2), productClientService.getReservations(orderId));
+        assertEquals(1, productClientService.getStock(2L));
+        assertEquals(2, orderItemRepository.findByOrderEntityId(orderId).size());
+
+        OrderException noStock = assertThrows(OrderException.class, () -> orderItemService.addOrderItem(USER_ID, orderId, line(4L, 1)));
+        assertEquals(Constants.NEGATIVE_STOCK, noStock.getMessage());
+        OrderException notFound = assertThrows(OrderException.class, () -> orderItemService.addOrderItem(USER_ID, orderId, line(5L, 1)));
+        assertEquals(Constants.PRODUCT_NOT_FOUND, notFound.getMessage());
+        assertEquals(2, orderItemRepository.findByOrderEntityId(orderId).size());
+    }
+
+    @Test
+    void quantityIncreasesAreReservedAndDecreasesReleasedUnderTheOrder() throws Exception {
+        productClientService.setStock(1L, 5);
+        Long orderId = createOrder(line(1L, 2)).orderDTO().getId();
+        Long orderItemId = orderItemRepository.findByOrderEntityId(orderId).get(0).getId();
+
+        OrderItemRecord increased = orderItemService.updateOrderItemQuantity(USER_ID, orderItemId, 4).getBody();
+        assertEquals(4, increased.quantity());
+        assertEquals(Map.of(1L, 4), productClientService.getReservations(orderId));
+        assertEquals(1, productClientService.getStock(1L));
+
+        OrderException noStock = assertThrows(OrderException.class, () -> orderItemService.updateOrderItemQuantity(USER_ID, orderItemId, 10));
+        assertEquals(Constants.NEGATIVE_STOCK, noStock.getMessage());
+        assertEquals(4, orderItemRepository.findById(orderItemId).orElseThrow().getQuantity());
+        assertEquals(1, productClientService.getStock(1L));
+
+        orderItemService.updateOrderItemQuantity(USER_ID, orderItemId, 1);
+        assertEquals(Map.of(1L, 1), productClientService.getReservations(orderId));
+        assertEquals(4, productClientService.getStock(1L));
+
+        orderItemService.deleteOrderItem(USER_ID, orderItemId);
+        assertEquals(Map.of(), productClientService.getReservations(orderId));
+        assertEquals(5, productClientService.getStock(1L));
+        assertFalse(productClientService.wasCalledInTransaction());
+    }
+
+    @Test
+    void completingAnOrderPublishesAPdfWithEveryProduct() throws Exception {
+        productClientService.setStock(6L, 5);
+        productClientService.setStock(7L, 5);
+        Long orderId = createOrder(line(6L, 2), line(7L, 1)).orderDTO().getId();
+
+        orderService.changeStatus(USER_ID, "user@order.com", orderId, OrderStatusEnum.COMPLETED);
+
+        assertEquals(OrderStatusEnum.COMPLETED, orderRepository.findById(orderId).orElseThrow().getStatus());
+        List<RecordingOutboxMessageService.SavedMessage> pdfEvents = outboxMessageService.getSavedMessages("OrderPdfEvent");
+        assertEquals(1, pdfEvents.size());
+        OrderToPdfDTO pdf = (OrderToPdfDTO) pdfEvents.get(0).event();
+        assertEquals(Map.of(6L, 2, 7L, 1), pdf.getNewProductList().stream()
+                .collect(Collectors.toMap(ProductRecord::id, ProductRecord::quantity)));
+        assertFalse(productClientService.wasCalledInTransaction());
+    }
+
+    @Test
+    void missingProductDetailsLeaveTheOrderAsItWas() throws Exception {
+        productClientService.setStock(8L, 5);
+        productClientService.setStock(9L, 5);
+        productClientService.withholdDetails(9L);
+        Long orderId = createOrder(line(8L, 2), line(9L, 1)).orderDTO().getId();
+
+        OrderException unavailable = assertThrows(OrderException.class,
+                () -> orderService.changeStatus(USER_ID, "user@order.com", orderId, OrderStatusEnum.COMPLETED));
+        assertEquals(Constants.PRODUCT_DETAILS_UNAVAILABLE, unavailable.getMessage());
+        assertEquals(OrderStatusEnum.PENDING, orderRepository.findById(orderId).orElseThrow().getStatus());
+        assertTrue(outboxMessageService.getSavedMessages("OrderPdfEvent").isEmpty());
+    }
+
+    @Test
+    void ordersStillInTheirSagaCanBeNeitherReadNorChanged() {
+        productClientService.setStock(1L, 5);
+        productClientService.loseNextReservationResponse();
+        productClientService.failReleases(1);
+        assertThrows(OrderException.class, () -> createOrder(line(1L, 2)));
+
+        Long orderId = orderRepository.findAll().get(0).getId();
+        Long orderItemId = orderItemRepository.findByOrderEntityId(orderId).get(0).getId();
+        assertEquals(SagaStatusEnum.COMPENSATING, orderRepository.findById(orderId).orElseThrow().getSagaStatus());
+
+        OrderException notFound = assertThrows(OrderException.class, () -> orderService.getOrderById(orderId));
+        assertEquals(Constants.ORDER_NOT_FOUND, notFound.getMessage());
+        assertThrows(OrderException.class, () -> orderService.getOrderByUserId(USER_ID, orderId));
+        assertTrue(orderService.getAllOrdersByUserId(USER_ID).getBody().isEmpty());
+        assertThrows(OrderException.class, () -> orderItemService.getAllOrderItemsByOrderId(USER_ID, orderId));
+
+        assertThrows(OrderException.class,
+                () -> orderService.changeStatus(USER_ID, "user@order.com", orderId, OrderStatusEnum.COMPLETED));
+        assertThrows(OrderException.class, () -> orderItemService.addOrderItem(USER_ID, orderId, line(1L, 1)));
+        assertThrows(OrderException.class, () -> orderItemService.updateOrderItemQuantity(USER_ID, orderItemId, 1));
+        assertThrows(OrderException.class, () -> orderItemService.deleteOrderItem(USER_ID, orderItemId));
+
+        assertEquals(OrderStatusEnum.PENDING, orderRepository.findById(orderId).orElseThrow().getStatus());
+        assertEquals(2, orderItemRepository.findById(orderItemId).orElseThrow().getQuantity());
+        assertEquals(3, productClientService.getStock(1L));
+    }
+
+    private OrderCreatedRecord createOrder(ProductQuantityRecord... lines) throws OrderException {
+        return orderService.createOrder(USER_ID, "user@order.com", new NewOrderRecord(List.of(lines))).getBody();
+    }
+
+    private static ProductQuantityRecord line(Long productId, int quantity) {
+        return new ProductQuantityRecord(productId, quantity);
+    }
+}
@@ -0,0 +1,107 @@
+package com.order.order_service.services;
+
+import com.order.order_service.models.OutboxMessage;
+import com.order.order_service.repositories.OutboxMessageRepository;
+import com.order.order_service.services.implementations.OutboxMessageServiceImplementation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Messages saved through the outbox service are handed to the publisher right after their transaction commits,
+ * and never when it rolls back.
+ */
+@DataJpaTest
+@Import({OutboxMessageServiceImplementation.class, OutboxMessageServiceTests.RecordingPublisherConfiguration.class})
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OutboxMessageServiceTests {
+
+    private static final Map<String, Long> EVENT = Map.of("orderId", 1L);
+
+    @Autowired
+    private OutboxMessageService outboxMessageService;
+
+    @Autowired
+    private OutboxMessageRepository outboxMessageRepository;
+
+    @Autowired
+    private RecordingOutboxPublisherService outboxPublisherService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @AfterEach
+    void tearDown() {
+        outboxMessageRepository.deleteAll();
+        outboxPublisherService.dispatched.clear();
+    }
+
+    @Test
+    void dispatchesOnlyOnceTheTransactionCommits() {
+        transactionTemplate.executeWithoutResult(status -> {
+            outboxMessageService.saveOutboxMessage(EVENT, "ORDER_CREATED", "order.exchange", "order.created");
+            assertTrue(outboxPublisherService.dispatched.isEmpty());
+        });
+
+        List<Long> savedIds = outboxMessageRepository.findAll().stream().map(OutboxMessage::getId).toList();
+        assertEquals(1, savedIds.size());
+        assertEquals(savedIds, outboxPublisherService.dispatched);
+    }
+
+    @Test
+    void neverDispatchesARolledBackMessage() {
+        transactionTemplate.executeWithoutResult(status -> {
+            outboxMessageService.saveOutboxMessage(EVENT, "ORDER_CREATED", "order.exchange", "order.created");
+            status.setRollbackOnly();
+        });
+
+        assertEquals(0, outboxMessageRepository.count());
+        assertTrue(outboxPublisherService.dispatched.isEmpty());
+    }
+
+    @Test
+    void dispatchesRightAwayOutsideATransaction() {
+        outboxMessageService.saveOutboxMessage(EVENT, "ORDER_CREATED", "order.exchange", "order.created");
+
+        assertEquals(outboxMessageRepository.findAll().stream().map(OutboxMessage::getId).toList(),
+                outboxPublisherService.dispatched);
+    }
+
+    static class RecordingOutboxPublisherService implements OutboxPublisherService {
+        final List<Long> dispatched = new ArrayList<>();
+
+        @Override
+        public void processOutboxMessages() {}
+
+        @Override
+        public void dispatch(Long messageId) {
+            dispatched.add(messageId);
+        }
+    }
+
+    @TestConfiguration
+    static class RecordingPublisherConfiguration {
+
+        @Bean
+        public RecordingOutboxPublisherService outboxPublisherService() {
+            return new RecordingOutboxPublisherService();
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package com.order.order_service.services;
+
+import com.order.order_service.models.OutboxMessage;
+import com.order.order_service.repositories.OutboxMessageRepository;
+import com.order.order_service.services.implementations.OutboxPublisherServiceImplementation;
+import com.order.order_service.stubs.RecordingRabbitTemplate;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The batched publisher against the outbox table, with a RabbitTemplate that records what it is given and answers
+ * publisher confirms as each test asks. Pages are small so that a few messages already span several.
+ */
+@DataJpaTest
+@Import({OutboxPublisherServiceImplementation.class, OutboxPublisherTests.PublisherConfiguration.class})
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = {
+        "outbox.publisher.instance-id=publisher-a",
+        "outbox.publisher.batch-size=4",
+        "outbox.publisher.confirms-enabled=true",
+        "outbox.publisher.confirm-timeout-ms=100",
+        "outbox.retry.base-delay-ms=1000",
+        "outbox.retry.max-delay-ms=6000",
+        "outbox.dispatch.enabled=false"
+})
+class OutboxPublisherTests {
+
+    private static final String PAYLOAD = "{\"orderId\":1,\"email\":\"jürgen@example.com\"}";
+    private static final String PAYLOAD_TYPE = "com.order.order_service.dtos.OrderToPdfDTO";
+
+    @Autowired
+    private OutboxPublisherService outboxPublisherService;
+
+    @Autowired
+    private OutboxMessageRepository outboxMessageRepository;
+
+    @Autowired
+    private RecordingRabbitTemplate rabbitTemplate;
+
+    @AfterEach
+    void tearDown() {
+        outboxMessageRepository.deleteAll();
+        rabbitTemplate.reset();
+    }
+
+    @Test
+    void publishesDueMessagesPageByPageAndSettlesThem() {
+        List<OutboxMessage> sendable = new ArrayList<>();
+        List<OutboxMessage> failing = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            sendable.add(saveMessage(true));
+            failing.add(saveMessage(false));
+        }
+        OutboxMessage notDue = saveMessage(LocalDateTime.now().plusMinutes(1), 0);
+
+        outboxPublisherService.processOutboxMessages();
+
+        assertEquals(sendable.size(), rabbitTemplate.getSentMessages().size());
+        for (OutboxMessage message : sendable) {
+            OutboxMessage stored = reload(message);
+            assertTrue(stored.isProcessed());
+            assertNull(stored.getLeaseOwner());
+        }
+        for (OutboxMessage message : failing) {
+            OutboxMessage stored = reload(message);
+            assertFalse(stored.isProcessed());
+            assertEquals(1, stored.getRetryCount());
+            assertNull(stored.getLeaseOwner());
+        }
+        OutboxMessage untouched = reload(notDue);
+        assertFalse(untouched.isProcessed());
+        assertEquals(0, untouched.getRetryCount());
+    }
+
+    @Test
+    void failedSendsBackOffWithJitterPerRetryCount() {
+        List<OutboxMessage> firstFailures = new ArrayList<>();
+        List<OutboxMessage> thirdFailures = new ArrayList<>();
+        List<OutboxMessage> lastFailures = new ArrayList<>();
+        // Pages of four, so each pair of failures with the same retry count lands on one page
+        for (int i = 0; i < 2; i++) {
+            firstFailures.add(saveMessage(false, 0));
+        }
+        for (int i = 0; i < 2; i++) {
+            thirdFailures.add(saveMessage(false, 2));
+        }
+        for (int i = 0; i < 2; i++) {
+            lastFailures.add(saveMessage(false, 4));
+        }
+
+        LocalDateTime before = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+        outboxPublisherService.processOutboxMessages();
+        LocalDateTime after = LocalDateTime.now().plus(1, ChronoUnit.MILLIS);
+
+        // Half of base-delay << (retries - 1) is fixed, the other half random, capped at max-delay
+        assertBackedOff(firstFailures, 1, 500, 1000, before, after);
+        assertBackedOff(thirdFailures, 3, 2000, 4000, before, after);
+        assertBackedOff(lastFailures, 5, 3000, 6000, before, after);
+    }
+
+    @Test
+    void sendsTheStoredPayloadWithJsonConverterHeaders() {
+        OutboxMessage typed = saveMessage(true);
+        OutboxMessage untyped = saveMessage(true);
+        untyped.setPayloadType(null);
+        outboxMessageRepository.save(untyped);
+
+        outboxPublisherService.processOutboxMessages();
+
+        List<RecordingRabbitTemplate.SentMessage> sentMessages = rabbitTemplate.getSentMessages();
+        assertEquals(2, sentMessages.size());
+        assertEquals("order.exchange", sentMessages.get(0).exchange());
+        assertEquals("order.created", sentMessages.get(0).routingKey());
+
+        byte[] body = PAYLOAD.getBytes(StandardCharsets.UTF_8);
+        for (RecordingRabbitTemplate.SentMessage sentMessage : sentMessages) {
+            Message message = sentMessage.message();
+            MessageProperties properties = message.getMessageProperties();
+            assertArrayEquals(body, message.getBody());
+            assertEquals(MessageProperties.CONTENT_TYPE_JSON, properties.getContentType());
+            assertEquals("UTF-8", properties.getContentEncoding());
+            // The payload has a non-ASCII character, so a length in chars would be off
+            assertEquals(body.length, properties.getContentLength());
+        }
+        assertEquals(PAYLOAD_TYPE, sentMessages.get(0).message().getMessageProperties().getHeader("__TypeId__"));
+        // Rows written before payload types were stored fall back to the event type
+        assertEquals("ORDER_CREATED", sentMessages.get(1).message().getMessageProperties().getHeader("__TypeId__"));
+        assertTrue(reload(typed).isProcessed());
+    }
+
+    @Test
+    void nackedAndUnconfirmedMessagesAreRetriedNotProcessed() {
+        OutboxMessage nacked = saveMessage(true);
+        OutboxMessage unconfirmed = saveMessage(true);
+        OutboxMessage acked = saveMessage(true);
+        rabbitTemplate.nack(nacked.getId());
+        rabbitTemplate.withholdConfirm(unconfirmed.getId());
+
+        outboxPublisherService.processOutboxMessages();
+
+        assertEquals(3, rabbitTemplate.getSentMessages().size());
+        for (OutboxMessage message : List.of(nacked, unconfirmed)) {
+            OutboxMessage stored = reload(message);
+            assertFalse(stored.isProcessed());
+            assertEquals(1, stored.getRetryCount());
+            assertTrue(stored.getNextAttemptAt().isAfter(LocalDateTime.now()));
+            assertNull(stored.getLeaseOwner());
+        }
+        assertTrue(reload(acked).isProcessed());
+    }
+
+    // A page's failures with the same retry count are rescheduled by one update, so they share their next attempt
+    private void assertBackedOff(List<OutboxMessage> messages, int retryCount, long minDelayMs, long maxDelayMs,
+                                 LocalDateTime before, LocalDateTime after) {
+        LocalDateTime nextAttemptAt = reload(messages.get(0)).getNextAttemptAt();
+        assertFalse(nextAttemptAt.isBefore(before.plus(minDelayMs, ChronoUnit.MILLIS)), () -> "Retried too soon: " + nextAttemptAt);
+        assertFalse(nextAttemptAt.isAfter(after.plus(maxDelayMs, ChronoUnit.MILLIS)), () -> "Retried too late: " + nextAttemptAt);
+
+        for (OutboxMessage message : messages) {
+            OutboxMessage stored = reload(message);
+            assertFalse(stored.isProcessed());
+            assertEquals(retryCount, stored.getRetryCount());
+            assertEquals(nextAttemptAt, stored.getNextAttemptAt());
+            assertNull(stored.getLeaseOwner());
+        }
+    }
+
+    private OutboxMessage reload(OutboxMessage message) {
+        return outboxMessageRepository.findById(message.getId()).orElseThrow();
+    }
+
+    // sendRawMessage fails every even id on purpose, so this skips ahead to an id with the wanted outcome
+    private OutboxMessage saveMessage(boolean sendable) {
+        return saveMessage(sendable, 0);
+    }
+
+    private OutboxMessage saveMessage(boolean sendable, int retryCount) {
+        OutboxMessage message = saveMessage(LocalDateTime.now().minusSeconds(1), retryCount);
+        if ((message.getId() % 2 != 0) == sendable) {
+            return message;
+        }
+        outboxMessageRepository.delete(message);
+        return saveMessage(sendable, retryCount);
+    }
+
+    private OutboxMessage saveMessage(LocalDateTime nextAttemptAt, int retryCount) {
+        OutboxMessage message = new OutboxMessage("ORDER_CREATED", PAYLOAD, "order.exchange", "order.created",
+                LocalDateTime.now(), false, retryCount);
+        message.setPayloadType(PAYLOAD_TYPE);
+        message.setNextAttemptAt(nextAttemptAt);
+        return outboxMessageRepository.save(message);
+    }
+
+    @TestConfiguration
+    static class PublisherConfiguration {
+
+        @Bean
+        public RecordingRabbitTemplate rabbitTemplate() {
+            return new RecordingRabbitTemplate();
+        }
+
+        @Bean
+        public MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+}
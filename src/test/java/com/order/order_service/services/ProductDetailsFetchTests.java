@@ -0,0 +1,121 @@
+package com.order.order_service.services;
+
+import com.order.order_service.config.RestTemplateConfig;
+import com.order.order_service.dtos.ProductRecord;
+import com.order.order_service.services.implementations.ProductClientServiceImplementation;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the blocking client against a local product-service whose slow products answer long after the deadline.
+ */
+class ProductDetailsFetchTests {
+
+    private static final int DEADLINE_MS = 1000;
+    private static final int SLOW_RESPONSE_MS = 10000;
+
+    private HttpServer productService;
+    private String productServiceUrl;
+    private ThreadPoolTaskExecutor productDetailsExecutor;
+    private ProductClientServiceImplementation productClientService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        productService = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        productService.createContext("/public/", exchange -> {
+            long productId = Long.parseLong(exchange.getRequestURI().getPath().substring("/public/".length()));
+            try {
+                if (productId >= 100) {
+                    Thread.sleep(SLOW_RESPONSE_MS);
+                }
+                byte[] body = ("{\"id\":" + productId + ",\"name\":\"p\",\"price\":1.0,\"quantity\":1}").getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, body.length);
+                exchange.getResponseBody().write(body);
+            } catch (Exception ignored) {
+            } finally {
+                exchange.close();
+            }
+        });
+        productService.setExecutor(Executors.newCachedThreadPool());
+        productService.start();
+        productServiceUrl = "http://127.0.0.1:" + productService.getAddress().getPort();
+    }
+
+    private void startClient(int threads, int queueCapacity) {
+        RestTemplateConfig restTemplateConfig = new RestTemplateConfig();
+        ReflectionTestUtils.setField(restTemplateConfig, "productDetailsDeadlineMs", DEADLINE_MS);
+        ClientHttpRequestFactory requestFactory = RestTemplateConfig.pooledRequestFactory(
+                RestTemplateConfig.connectionManager(20, 20, 2000, SLOW_RESPONSE_MS * 2, 300000), SLOW_RESPONSE_MS * 2, 1000, 30000);
+
+        productDetailsExecutor = new ThreadPoolTaskExecutor();
+        productDetailsExecutor.setCorePoolSize(threads);
+        productDetailsExecutor.setMaxPoolSize(threads);
+        productDetailsExecutor.setQueueCapacity(queueCapacity);
+        productDetailsExecutor.initialize();
+
+        productClientService = new ProductClientServiceImplementation();
+        ReflectionTestUtils.setField(productClientService, "restTemplate", restTemplateConfig.restTemplate(requestFactory));
+        ReflectionTestUtils.setField(productClientService, "productDetailsRestTemplate", restTemplateConfig.productDetailsRestTemplate(requestFactory));
+        ReflectionTestUtils.setField(productClientService, "productDetailsExecutor", productDetailsExecutor);
+        ReflectionTestUtils.setField(productClientService, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(productClientService, "PRODUCT_SERVICE_URL", productServiceUrl);
+        ReflectionTestUtils.setField(productClientService, "productDetailsDeadlineMs", (long) DEADLINE_MS);
+        ReflectionTestUtils.setField(productClientService, "productDetailsCacheMaxSize", 100L);
+        ReflectionTestUtils.setField(productClientService, "productDetailsCacheTtlMs", 600000L);
+        ReflectionTestUtils.setField(productClientService, "productDetailsCacheRefreshAfterMs", 300000L);
+        productClientService.initProductDetailsCache();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (productDetailsExecutor != null) {
+            productDetailsExecutor.shutdown();
+        }
+        productService.stop(0);
+    }
+
+    @Test
+    void saturatedExecutorSkipsProductsInsteadOfFailing() {
+        startClient(1, 1);
+
+        Map<Long, ProductRecord> products = productClientService.getProductDetails(List.of(100L, 101L, 102L, 103L, 104L));
+
+        assertTrue(products.isEmpty());
+    }
+
+    @Test
+    void deadlineEndsTheHttpCallsAndFreesTheWorkers() throws Exception {
+        startClient(2, 16);
+        // Warm up the client so the first real fetch is not measured against class loading
+        productClientService.getProductDetails(List.of(1L));
+
+        long start = System.nanoTime();
+        productClientService.getProductDetails(List.of(100L, 101L));
+
+        while (productDetailsExecutor.getActiveCount() > 0 && System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(SLOW_RESPONSE_MS)) {
+            Thread.sleep(20);
+        }
+        assertEquals(0, productDetailsExecutor.getActiveCount());
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(SLOW_RESPONSE_MS / 2));
+
+        Map<Long, ProductRecord> products = productClientService.getProductDetails(List.of(2L, 3L));
+        assertEquals(2, products.size());
+    }
+}
@@ -0,0 +1,68 @@
+package com.order.order_service.services;
+
+import com.order.order_service.services.implementations.ProductIdFilterServiceImplementation;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The filter built from a snapshot file of the even ids 2..2000, so that odd ids are absent.
+ */
+class ProductIdFilterServiceTests {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private ProductIdFilterServiceImplementation productIdFilterService;
+
+    @BeforeEach
+    void setUp(@TempDir Path tempDir) throws Exception {
+        Path snapshot = tempDir.resolve("product-ids.txt");
+        Files.writeString(snapshot, LongStream.rangeClosed(1, 1_000)
+                .mapToObj(i -> String.valueOf(2 * i))
+                .collect(Collectors.joining("\n")));
+
+        productIdFilterService = new ProductIdFilterServiceImplementation();
+        ReflectionTestUtils.setField(productIdFilterService, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(productIdFilterService, "enabled", true);
+        ReflectionTestUtils.setField(productIdFilterService, "source", "file");
+        ReflectionTestUtils.setField(productIdFilterService, "snapshotFile", snapshot.toString());
+        ReflectionTestUtils.setField(productIdFilterService, "expectedFpp", 0.0001);
+        productIdFilterService.initMetrics();
+        productIdFilterService.rebuild();
+    }
+
+    @Test
+    void passesNewProductsOnlyOnceAStockEventNamesThem() {
+        assertFalse(productIdFilterService.mightExist(2_001L));
+        assertFalse(productIdFilterService.mightExist(1_000_000L));
+
+        productIdFilterService.recordExisting(2_001L);
+
+        assertTrue(productIdFilterService.mightExist(2_001L));
+        assertFalse(productIdFilterService.mightExist(2_003L));
+    }
+
+    @Test
+    void countsFalsePositivesOnlyForIdsTheBloomFilterLetThrough() {
+        productIdFilterService.recordExisting(2_001L);
+
+        // A product from the snapshot that was deleted since is a real false positive of the filter
+        productIdFilterService.recordNotFound(2L);
+        // Ids the filter rejects, or that only passed through a stock event, are not
+        productIdFilterService.recordNotFound(3L);
+        productIdFilterService.recordNotFound(2_001L);
+
+        assertEquals(1, meterRegistry.counter("product.id.filter.false.positives").count());
+    }
+}
@@ -0,0 +1,94 @@
+package com.order.order_service.services;
+
+import com.order.order_service.dtos.ProductStockEventRecord;
+import com.order.order_service.services.implementations.StockSnapshotServiceImplementation;
+import com.order.order_service.stubs.PassingProductIdFilterService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Feeds the stock listener through an in-memory channel that carries the same JSON messages the broker would
+ * deliver, converted with the application's message converter.
+ */
+class StockSnapshotServiceTests {
+
+    private final Jackson2JsonMessageConverter messageConverter = new Jackson2JsonMessageConverter();
+    private final Queue<Message> channel = new ArrayDeque<>();
+
+    private StockSnapshotServiceImplementation stockSnapshotService;
+
+    @BeforeEach
+    void setUp() {
+        stockSnapshotService = new StockSnapshotServiceImplementation();
+        ReflectionTestUtils.setField(stockSnapshotService, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(stockSnapshotService, "productIdFilterService", new PassingProductIdFilterService());
+        ReflectionTestUtils.setField(stockSnapshotService, "enabled", true);
+        ReflectionTestUtils.setField(stockSnapshotService, "maxAgeMs", 60000L);
+        ReflectionTestUtils.setField(stockSnapshotService, "expectedProducts", 16);
+        stockSnapshotService.initSnapshot();
+    }
+
+    @Test
+    void rejectsLinesAboveTheLastPublishedStock() {
+        publish("{\"productId\":1,\"quantity\":5}");
+        deliver();
+
+        assertTrue(stockSnapshotService.lacksStock(1L, 6));
+        assertFalse(stockSnapshotService.lacksStock(1L, 5));
+    }
+
+    @Test
+    void laterEventsReplaceEarlierStock() {
+        publish("{\"productId\":1,\"quantity\":0}");
+        publish("{\"productId\":1,\"quantity\":10}");
+        deliver();
+
+        assertFalse(stockSnapshotService.lacksStock(1L, 10));
+    }
+
+    @Test
+    void unknownAndRemovedProductsAreLeftToProductService() {
+        publish("{\"productId\":2,\"quantity\":0}");
+        publish("{\"productId\":2,\"quantity\":null}");
+        deliver();
+
+        assertFalse(stockSnapshotService.lacksStock(2L, 1));
+        assertFalse(stockSnapshotService.lacksStock(3L, 1));
+    }
+
+    @Test
+    void staleEntriesAreIgnored() {
+        ReflectionTestUtils.setField(stockSnapshotService, "maxAgeMs", -1L);
+        publish("{\"productId\":1,\"quantity\":0}");
+        deliver();
+
+        assertFalse(stockSnapshotService.lacksStock(1L, 1));
+    }
+
+    private void publish(String json) {
+        MessageProperties properties = new MessageProperties();
+        properties.setContentType(MessageProperties.CONTENT_TYPE_JSON);
+        channel.add(new Message(json.getBytes(StandardCharsets.UTF_8), properties));
+    }
+
+    private void deliver() {
+        Message message;
+        while ((message = channel.poll()) != null) {
+            stockSnapshotService.onStockChanged((ProductStockEventRecord) messageConverter.fromMessage(message,
+                    new ParameterizedTypeReference<ProductStockEventRecord>() {}));
+        }
+    }
+}
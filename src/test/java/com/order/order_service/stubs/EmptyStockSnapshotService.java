@@ -0,0 +1,14 @@
+package com.order.order_service.stubs;
+
+import com.order.order_service.dtos.ProductStockEventRecord;
+import com.order.order_service.services.StockSnapshotService;
+
+public class EmptyStockSnapshotService implements StockSnapshotService {
+    @Override
+    public void onStockChanged(ProductStockEventRecord event) {}
+
+    @Override
+    public boolean lacksStock(Long productId, int quantity) {
+        return false;
+    }
+}
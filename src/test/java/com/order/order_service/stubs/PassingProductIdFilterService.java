@@ -0,0 +1,19 @@
+package com.order.order_service.stubs;
+
+import com.order.order_service.services.ProductIdFilterService;
+
+public class PassingProductIdFilterService implements ProductIdFilterService {
+    @Override
+    public boolean mightExist(Long productId) {
+        return true;
+    }
+
+    @Override
+    public void recordNotFound(Long productId) {}
+
+    @Override
+    public void recordExisting(Long productId) {}
+
+    @Override
+    public void rebuild() {}
+}
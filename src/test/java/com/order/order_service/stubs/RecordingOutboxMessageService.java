@@ -0,0 +1,30 @@
+package com.order.order_service.stubs;
+
+import com.order.order_service.services.OutboxMessageService;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps the events it is asked to save instead of writing outbox rows, so tests can see what would be published.
+ */
+public class RecordingOutboxMessageService implements OutboxMessageService {
+
+    private final List<SavedMessage> savedMessages = new ArrayList<>();
+
+    @Override
+    public synchronized void saveOutboxMessage(Object event, String eventType, String exchange, String routingKey) {
+        savedMessages.add(new SavedMessage(event, eventType, exchange, routingKey));
+    }
+
+    public synchronized List<SavedMessage> getSavedMessages(String eventType) {
+        return savedMessages.stream().filter(message -> message.eventType().equals(eventType)).toList();
+    }
+
+    public synchronized void reset() {
+        savedMessages.clear();
+    }
+
+    public record SavedMessage(Object event, String eventType, String exchange, String routingKey) {
+    }
+}
@@ -0,0 +1,58 @@
+package com.order.order_service.stubs;
+
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.connection.CachingConnectionFactory;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Keeps every message it is asked to send instead of talking to a broker. Publisher confirms are acked right away
+ * unless a test asked for a message to be nacked or never confirmed. The connection factory is never connected.
+ */
+public class RecordingRabbitTemplate extends RabbitTemplate {
+
+    private final List<SentMessage> sentMessages = new ArrayList<>();
+    private final Set<String> nackedIds = new HashSet<>();
+    private final Set<String> unconfirmedIds = new HashSet<>();
+
+    public RecordingRabbitTemplate() {
+        super(new CachingConnectionFactory("localhost"));
+    }
+
+    @Override
+    public synchronized void send(String exchange, String routingKey, Message message, CorrelationData correlationData) {
+        sentMessages.add(new SentMessage(exchange, routingKey, message));
+
+        if (correlationData == null || unconfirmedIds.contains(correlationData.getId())) {
+            return;
+        }
+        boolean ack = !nackedIds.contains(correlationData.getId());
+        correlationData.getFuture().complete(new CorrelationData.Confirm(ack, ack ? null : "Nacked by stub"));
+    }
+
+    public synchronized void nack(Long messageId) {
+        nackedIds.add(String.valueOf(messageId));
+    }
+
+    public synchronized void withholdConfirm(Long messageId) {
+        unconfirmedIds.add(String.valueOf(messageId));
+    }
+
+    public synchronized List<SentMessage> getSentMessages() {
+        return List.copyOf(sentMessages);
+    }
+
+    public synchronized void reset() {
+        sentMessages.clear();
+        nackedIds.clear();
+        unconfirmedIds.clear();
+    }
+
+    public record SentMessage(String exchange, String routingKey, Message message) {
+    }
+}
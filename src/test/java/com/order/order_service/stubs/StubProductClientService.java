@@ -0,0 +1,268 @@
+package com.order.order_service.stubs;
+
+import com.order.order_service.dtos.ProductQuantityRecord;
+import com.order.order_service.dtos.ProductRecord;
+import com.order.order_service.dtos.ReservationRequestRecord;
+import com.order.order_service.enums.ReservationStatusEnum;
+import com.order.order_service.exceptions.ProductServiceException;
+import com.order.order_service.models.OrderItem;
+import com.order.order_service.services.ProductClientService;
+import com.order.order_service.utils.LongIntHashMap;
+import com.order.order_service.utils.ReservationResults;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * In-process product-service keeping stock in memory. Either every product exists with a default stock, or only
+ * the products it was created with. Reservations are atomic per call and recorded per order like the real endpoint,
+ * which only remembers recent orders; releases give back what the order reserved, once.
+ * <p>
+ * Failures can be scripted: a reservation can be applied and then have its response lost, and releases can fail a
+ * number of times before they go through or be held until the test lets them continue, and the details of a product
+ * can be withheld. The stub also remembers whether it was ever called inside a transaction.
+ */
+public class StubProductClientService implements ProductClientService {
+
+    private static final int REMEMBERED_ORDERS = 1024;
+
+    private final Map<Long, Integer> stock;
+    private final Integer defaultStock;
+    private final Map<Long, Map<Long, Integer>> reservationsByOrder = recentOrders();
+    private final Map<Long, Boolean> releasedOrders = recentOrders();
+    private final Set<Long> withheldDetails = new HashSet<>();
+
+    private boolean loseNextReservationResponse;
+    private boolean failNextReservation;
+    private int failingReleases;
+    private int releaseCalls;
+    private CountDownLatch releaseGate;
+    private CountDownLatch releaseWaiting;
+    private boolean calledInTransaction;
+
+    public StubProductClientService(int defaultStock) {
+        this.stock = new HashMap<>();
+        this.defaultStock = defaultStock;
+    }
+
+    public StubProductClientService(Map<Long, Integer> stock) {
+        this.stock = new HashMap<>(stock);
+        this.defaultStock = null;
+    }
+
+    public synchronized Integer getStock(Long productId) {
+        return findStock(productId);
+    }
+
+    public synchronized void setStock(Long productId, int quantity) {
+        stock.put(productId, quantity);
+    }
+
+    public synchronized Map<Long, Integer> getReservations(Long orderId) {
+        return Map.copyOf(reservationsByOrder.getOrDefault(orderId, Map.of()));
+    }
+
+    /**
+     * The next reservation is applied, but the caller gets an error as if the response was lost.
+     */
+    public synchronized void withholdDetails(Long productId) {
+        withheldDetails.add(productId);
+    }
+
+    public synchronized boolean wasCalledInTransaction() {
+        return calledInTransaction;
+    }
+
+    public synchronized void loseNextReservationResponse() {
+        loseNextReservationResponse = true;
+    }
+
+    /**
+     * The next reservation fails without being applied.
+     */
+    public synchronized void failNextReservation() {
+        failNextReservation = true;
+    }
+
+    public synchronized void failReleases(int times) {
+        failingReleases = times;
+    }
+
+    public synchronized int getReleaseCalls() {
+        return releaseCalls;
+    }
+
+    /**
+     * Releases block until {@link #resumeReleases()}. The returned latch opens once a release is waiting.
+     */
+    public synchronized CountDownLatch holdReleases() {
+        releaseGate = new CountDownLatch(1);
+        releaseWaiting = new CountDownLatch(1);
+        return releaseWaiting;
+    }
+
+    public synchronized void resumeReleases() {
+        releaseGate.countDown();
+        releaseGate = null;
+    }
+
+    @Override
+    public synchronized LongIntHashMap getExistentProducts(List<ProductQuantityRecord> productQuantityRecordList) {
+        LongIntHashMap existentProducts = new LongIntHashMap(productQuantityRecordList.size());
+        for (ProductQuantityRecord productQuantityRecord : productQuantityRecordList) {
+            Integer available = findStock(productQuantityRecord.id());
+            if (available != null) {
+                existentProducts.put(productQuantityRecord.id(), available);
+            }
+        }
+        return existentProducts;
+    }
+
+    @Override
+    public synchronized void updateProducts(List<OrderItem> orderItemList, int factor) {
+        for (OrderItem orderItem : orderItemList) {
+            Integer available = findStock(orderItem.getProductId());
+            if (available != null) {
+                stock.put(orderItem.getProductId(), available + factor * orderItem.getQuantity());
+            }
+        }
+    }
+
+    @Override
+    public synchronized ReservationResults reserveProducts(List<ReservationRequestRecord> reservationRequestList) throws ProductServiceException {
+        recordTransaction();
+        if (failNextReservation) {
+            failNextReservation = false;
+            throw new ProductServiceException("Reservation failed");
+        }
+        for (ReservationRequestRecord reservationRequest : reservationRequestList) {
+            if (releasedOrders.containsKey(reservationRequest.orderId())) {
+                throw new ProductServiceException("Order " + reservationRequest.orderId() + " was already released");
+            }
+        }
+
+        ReservationResults reservations = new ReservationResults();
+        for (ReservationRequestRecord reservationRequest : reservationRequestList) {
+            for (ProductQuantityRecord productQuantityRecord : reservationRequest.products()) {
+                reservations.put(reservationRequest.orderId(), productQuantityRecord.id(), reserve(reservationRequest.orderId(), productQuantityRecord));
+            }
+        }
+
+        if (loseNextReservationResponse) {
+            loseNextReservationResponse = false;
+            throw new ProductServiceException("Reservation response lost");
+        }
+        return reservations;
+    }
+
+    @Override
+    public void releaseReservations(Long orderId, List<ProductQuantityRecord> productQuantityRecordList) throws ProductServiceException {
+        CountDownLatch gate;
+        synchronized (this) {
+            recordTransaction();
+            releaseCalls++;
+            gate = releaseGate;
+            if (gate != null) {
+                releaseWaiting.countDown();
+            }
+        }
+        if (gate != null) {
+            try {
+                gate.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ProductServiceException("Release interrupted");
+            }
+        }
+        release(orderId, productQuantityRecordList);
+    }
+
+    private synchronized void release(Long orderId, List<ProductQuantityRecord> productQuantityRecordList) throws ProductServiceException {
+        if (failingReleases > 0) {
+            failingReleases--;
+            throw new ProductServiceException("Release failed");
+        }
+        if (releasedOrders.put(orderId, true) != null) {
+            return;
+        }
+
+        Map<Long, Integer> reserved = reservationsByOrder.remove(orderId);
+        if (reserved == null) {
+            return;
+        }
+        for (ProductQuantityRecord productQuantityRecord : productQuantityRecordList) {
+            Integer quantity = reserved.get(productQuantityRecord.id());
+            if (quantity != null) {
+                stock.put(productQuantityRecord.id(), findStock(productQuantityRecord.id()) + quantity);
+            }
+        }
+    }
+
+    @Override
+    public synchronized Map<Long, ProductRecord> getProductDetails(Collection<Long> productIds) {
+        recordTransaction();
+        Map<Long, ProductRecord> products = new HashMap<>();
+        for (Long productId : productIds) {
+            Integer available = findStock(productId);
+            if (available != null && !withheldDetails.contains(productId)) {
+                products.put(productId, new ProductRecord(productId, "Product " + productId, "Stub product", 10.0, available));
+            }
+        }
+        return products;
+    }
+
+    private ReservationStatusEnum reserve(Long orderId, ProductQuantityRecord productQuantityRecord) {
+        Long productId = productQuantityRecord.id();
+        Integer available = findStock(productId);
+
+        if (available == null) {
+            return ReservationStatusEnum.NOT_FOUND;
+        }
+        if (available < productQuantityRecord.quantity()) {
+            return ReservationStatusEnum.NO_STOCK;
+        }
+        stock.put(productId, available - productQuantityRecord.quantity());
+        reservationsByOrder.computeIfAbsent(orderId, id -> new HashMap<>())
+                .merge(productId, productQuantityRecord.quantity(), Integer::sum);
+        return ReservationStatusEnum.RESERVED;
+    }
+
+    @Override
+    public synchronized void releaseReservationsDownTo(Long orderId, List<ProductQuantityRecord> productQuantityRecordList) {
+        recordTransaction();
+        Map<Long, Integer> reserved = reservationsByOrder.get(orderId);
+        if (reserved == null) {
+            return;
+        }
+        for (ProductQuantityRecord productQuantityRecord : productQuantityRecordList) {
+            Integer quantity = reserved.get(productQuantityRecord.id());
+            if (quantity != null && quantity > productQuantityRecord.quantity()) {
+                stock.put(productQuantityRecord.id(), findStock(productQuantityRecord.id()) + quantity - productQuantityRecord.quantity());
+                if (productQuantityRecord.quantity() > 0) {
+                    reserved.put(productQuantityRecord.id(), productQuantityRecord.quantity());
+                } else {
+                    reserved.remove(productQuantityRecord.id());
+                }
+            }
+        }
+    }
+
+    private void recordTransaction() {
+        calledInTransaction |= TransactionSynchronizationManager.isActualTransactionActive();
+    }
+
+    private Integer findStock(Long productId) {
+        Integer available = stock.get(productId);
+        return available != null ? available : defaultStock;
+    }
+
+    private static <V> Map<Long, V> recentOrders() {
+        return new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, V> eldest) {
+                return size() > REMEMBERED_ORDERS;
+            }
+        };
+    }
+}
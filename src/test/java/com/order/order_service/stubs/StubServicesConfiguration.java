@@ -0,0 +1,53 @@
+package com.order.order_service.stubs;
+
+import com.order.order_service.services.ProductIdFilterService;
+import com.order.order_service.services.StockSnapshotService;
+import com.order.order_service.services.UserClientService;
+import com.order.order_service.services.implementations.OrderItemServiceImplementation;
+import com.order.order_service.services.implementations.OrderSagaServiceImplementation;
+import com.order.order_service.services.implementations.OrderServiceImplementation;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+
+import java.util.Map;
+
+/**
+ * The real order, order item and saga services on top of a JPA slice, with product-service, user-service, the
+ * outbox and the local filters replaced by in-process stand-ins. Every product is unknown to the stub until a test
+ * gives it stock.
+ */
+@TestConfiguration
+@Import({OrderServiceImplementation.class, OrderItemServiceImplementation.class, OrderSagaServiceImplementation.class})
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+public class StubServicesConfiguration {
+
+    public static final Long USER_ID = 1L;
+
+    @Bean
+    public StubProductClientService productClientService() {
+        return new StubProductClientService(Map.of());
+    }
+
+    @Bean
+    public ProductIdFilterService productIdFilterService() {
+        return new PassingProductIdFilterService();
+    }
+
+    @Bean
+    public StockSnapshotService stockSnapshotService() {
+        return new EmptyStockSnapshotService();
+    }
+
+    @Bean
+    public UserClientService userClientService() {
+        return email -> USER_ID;
+    }
+
+    @Bean
+    public RecordingOutboxMessageService outboxMessageService() {
+        return new RecordingOutboxMessageService();
+    }
+}
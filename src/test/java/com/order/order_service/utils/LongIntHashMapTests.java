@@ -0,0 +1,51 @@
+package com.order.order_service.utils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LongIntHashMapTests {
+
+    @Test
+    void behavesLikeHashMapUnderRandomPutsAndRemoves() {
+        LongIntHashMap map = new LongIntHashMap(4);
+        Map<Long, Integer> expected = new HashMap<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 100_000; i++) {
+            long key = random.nextInt(2_000) - 100;
+            if (random.nextInt(3) == 0) {
+                map.remove(key);
+                expected.remove(key);
+            } else {
+                map.put(key, i);
+                expected.put(key, i);
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        for (long key = -100; key < 1_900; key++) {
+            assertEquals(expected.containsKey(key), map.containsKey(key));
+            assertEquals(expected.getOrDefault(key, -1), map.get(key, -1));
+        }
+    }
+
+    @Test
+    void deserializesProductQuantitiesFromJson() throws Exception {
+        LongIntHashMap map = new ObjectMapper().readValue("{\"1\":5,\"0\":2,\"9007199254740993\":0,\"7\":null}", LongIntHashMap.class);
+
+        assertEquals(3, map.size());
+        assertEquals(5, map.get(1, -1));
+        assertEquals(2, map.get(0, -1));
+        assertEquals(0, map.get(9007199254740993L, -1));
+        assertFalse(map.containsKey(7));
+        assertTrue(new ObjectMapper().readValue("{}", LongIntHashMap.class).isEmpty());
+    }
+}
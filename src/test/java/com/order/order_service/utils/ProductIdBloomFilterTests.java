@@ -0,0 +1,66 @@
+package com.order.order_service.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProductIdBloomFilterTests {
+
+    @Test
+    void containsEveryInsertedId() {
+        Random random = new Random(42);
+        long[] productIds = new long[50_000];
+        for (int i = 0; i < productIds.length; i++) {
+            productIds[i] = random.nextLong(1, 10_000_000);
+        }
+
+        ProductIdBloomFilter filter = ProductIdBloomFilter.of(productIds, 0.01);
+
+        for (long productId : productIds) {
+            assertTrue(filter.mightContain(productId));
+        }
+    }
+
+    @Test
+    void staysCloseToTheRequestedFalsePositiveRate() {
+        // Even ids exist, odd ids below the largest one are absent
+        long[] productIds = new long[100_000];
+        for (int i = 0; i < productIds.length; i++) {
+            productIds[i] = 2L * (i + 1);
+        }
+
+        ProductIdBloomFilter filter = ProductIdBloomFilter.of(productIds, 0.01);
+
+        int falsePositives = 0;
+        for (int i = 0; i < productIds.length; i++) {
+            if (filter.mightContain(2L * i + 1)) {
+                falsePositives++;
+            }
+        }
+        double fpp = (double) falsePositives / productIds.length;
+        assertTrue(fpp < 0.015, "False positive rate " + fpp);
+        assertTrue(filter.expectedFpp() < 0.015, "Expected false positive rate " + filter.expectedFpp());
+    }
+
+    @Test
+    void checksIdsAboveTheLargestInsertedOneLikeAnyOther() {
+        long[] productIds = new long[1_000];
+        for (int i = 0; i < productIds.length; i++) {
+            productIds[i] = i + 1;
+        }
+
+        ProductIdBloomFilter filter = ProductIdBloomFilter.of(productIds, 0.0001);
+
+        int rejected = 0;
+        for (long productId = 1_001; productId <= 2_000; productId++) {
+            if (!filter.mightContain(productId)) {
+                rejected++;
+            }
+        }
+        assertTrue(rejected > 990);
+        assertFalse(filter.mightContain(Long.MAX_VALUE));
+    }
+}
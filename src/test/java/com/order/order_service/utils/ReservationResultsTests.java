@@ -0,0 +1,60 @@
+package com.order.order_service.utils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.InvalidFormatException;
+import com.order.order_service.enums.ReservationStatusEnum;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReservationResultsTests {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void deserializesReservationResponsesFromJson() throws Exception {
+        ReservationResults reservations = objectMapper.readValue("""
+                [{"id":1,"quantity":2,"status":"RESERVED"},
+                 {"status":"NO_STOCK","id":2,"quantity":5,"extra":{"nested":[1,2]}},
+                 {"id":3,"quantity":1,"status":"NOT_FOUND"},
+                 {"id":4,"quantity":1},
+                 {"id":0,"status":"RESERVED"}]""", ReservationResults.class);
+
+        assertEquals(4, reservations.size());
+        assertTrue(reservations.isReserved(1));
+        assertEquals(ReservationStatusEnum.NO_STOCK, reservations.get(2));
+        assertFalse(reservations.isReserved(2));
+        assertEquals(ReservationStatusEnum.NOT_FOUND, reservations.get(3));
+        assertNull(reservations.get(4));
+        assertTrue(reservations.isReserved(0));
+        assertTrue(objectMapper.readValue("[]", ReservationResults.class).isEmpty());
+    }
+
+    @Test
+    void keepsTheOutcomesOfEachOrderApart() throws Exception {
+        ReservationResults reservations = objectMapper.readValue("""
+                [{"orderId":7,"id":1,"quantity":2,"status":"RESERVED"},
+                 {"orderId":8,"id":1,"quantity":2,"status":"NO_STOCK"},
+                 {"id":2,"orderId":8,"quantity":1,"status":"RESERVED"}]""", ReservationResults.class);
+
+        assertTrue(reservations.forOrder(7).isReserved(1));
+        assertEquals(1, reservations.forOrder(7).size());
+        assertEquals(ReservationStatusEnum.NO_STOCK, reservations.forOrder(8).get(1));
+        assertTrue(reservations.forOrder(8).isReserved(2));
+        assertTrue(reservations.forOrder(9).isEmpty());
+
+        // Without order ids the whole response answers the one order that asked
+        ReservationResults singleOrder = objectMapper.readValue("[{\"id\":1,\"status\":\"RESERVED\"}]", ReservationResults.class);
+        assertTrue(singleOrder.forOrder(7).isReserved(1));
+    }
+
+    @Test
+    void rejectsUnknownStatuses() {
+        assertThrows(InvalidFormatException.class,
+                () -> objectMapper.readValue("[{\"id\":1,\"status\":\"HELD\"}]", ReservationResults.class));
+    }
+}